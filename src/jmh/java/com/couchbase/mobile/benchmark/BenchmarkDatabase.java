@@ -0,0 +1,108 @@
+package com.couchbase.mobile.benchmark;
+
+import com.couchbase.lite.*;
+import com.couchbase.lite.Collection;
+import com.couchbase.mobile.client.ClientLite;
+import com.couchbase.mobile.config.CouchbaseLiteProperties;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Benchmark fixture: a database with a single collection living in a temporary directory that is deleted on close.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+    public static final String SCOPE = "bench";
+    public static final String COLLECTION = "docs";
+    private static final Array CHANNELS = new MutableArray().addString("channel1").addString("channel2");
+
+    static {
+        CouchbaseLite.init();
+    }
+
+    private final File directory;
+    private final CouchbaseLiteProperties properties = new CouchbaseLiteProperties();
+    private final Database database;
+    private final Collection collection;
+    private ClientLite client;
+
+    public BenchmarkDatabase() throws IOException, CouchbaseLiteException {
+        this(new DatabaseConfiguration());
+    }
+
+    public BenchmarkDatabase(DatabaseConfiguration config) throws IOException, CouchbaseLiteException {
+        this.directory = Files.createTempDirectory("cbl-bench").toFile();
+        this.properties.getLocal().setDbPath(directory.getAbsolutePath());
+        this.properties.getLocal().getScope().setName(SCOPE);
+        this.properties.getLocal().getScope().setCollections(List.of(COLLECTION));
+        config.setDirectory(directory.getAbsolutePath());
+        this.database = new Database(properties.getLocal().getDatabase(), config);
+        this.collection = database.createCollection(COLLECTION, SCOPE);
+    }
+
+    public static String id(long i) {
+        return "doc:%08d".formatted(i);
+    }
+
+    /**
+     * Same shape as the documents created by the CRUD menu, padded with a payload of {@code size} characters.
+     */
+    public static MutableDocument document(String id, int size) {
+        return new MutableDocument(id)
+                .setString("rfid", "123456789")
+                .setString("type", COLLECTION)
+                .setArray("channels", CHANNELS)
+                .setArray("destination", CHANNELS)
+                .setString("payload", "x".repeat(size));
+    }
+
+    public void populate(int count, int size) throws CouchbaseLiteException {
+        database.inBatch(() -> {
+            for (int i = 0; i < count; i++) {
+                collection.save(document(id(i), size));
+            }
+        });
+    }
+
+    /**
+     * @return a client without replicator on top of the benchmark database, closed together with the fixture
+     */
+    public ClientLite client() {
+        if (client == null) {
+            client = new ClientLite(database, null, properties);
+        }
+        return client;
+    }
+
+    public CouchbaseLiteProperties getProperties() {
+        return properties;
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    public Collection getCollection() {
+        return collection;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws CouchbaseLiteException {
+        try {
+            if (client != null) {
+                client.close();
+            } else {
+                database.close();
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.couchbase.mobile.benchmark;
+
+import com.couchbase.lite.Collection;
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Document;
+import com.couchbase.lite.MutableDocument;
+import com.couchbase.mobile.client.ClientLite;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.COLLECTION;
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.document;
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.id;
+
+/**
+ * Local hot paths of {@link ClientLite}: writes, reads by id, listing and counting a collection of
+ * {@code collectionSize} documents of roughly {@code documentSize} bytes each. Writes overwrite documents of the
+ * collection, so its size doesn't drift along the iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClientLiteBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"1000", "10000"})
+    public int collectionSize;
+
+    @Param({"256", "4096"})
+    public int documentSize;
+
+    private BenchmarkDatabase fixture;
+    private ClientLite client;
+    private Collection collection;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkDatabase();
+        fixture.populate(collectionSize, documentSize);
+        client = fixture.client();
+        collection = fixture.getCollection();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    private String randomId() {
+        return id(ThreadLocalRandom.current().nextInt(collectionSize));
+    }
+
+    @Benchmark
+    public void saveSingle() throws CouchbaseLiteException {
+        collection.save(document(randomId(), documentSize));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void saveBatched(Blackhole bh) {
+        List<MutableDocument> docs = new ArrayList<>(BATCH);
+        int first = ThreadLocalRandom.current().nextInt(collectionSize);
+        for (int i = 0; i < BATCH; i++) {
+            docs.add(document(id((first + i) % collectionSize), documentSize));
+        }
+        bh.consume(client.saveAll(collection, docs));
+    }
+
+    @Benchmark
+    public Document getDocument() throws CouchbaseLiteException {
+        return collection.getDocument(randomId());
+    }
+
+    @Benchmark
+    public void findAll(Blackhole bh) {
+        bh.consume(client.findAll(COLLECTION));
+    }
+
+    @Benchmark
+    public long streamAll() {
+        return client.streamAll(COLLECTION).count();
+    }
+
+    @Benchmark
+    public long count() {
+        return client.count();
+    }
+
+    @Benchmark
+    public long collectionGetCount() {
+        return collection.getCount();
+    }
+
+    @Benchmark
+    public MutableDocument mutate() throws CouchbaseLiteException {
+        return collection.getDocument(randomId()).toMutable().setString("myproperty", "value " + System.nanoTime());
+    }
+}
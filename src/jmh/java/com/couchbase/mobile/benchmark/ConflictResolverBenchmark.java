@@ -0,0 +1,66 @@
+package com.couchbase.mobile.benchmark;
+
+import com.couchbase.lite.CouchbaseLite;
+import com.couchbase.lite.Document;
+import com.couchbase.lite.MutableDocument;
+import com.couchbase.mobile.client.FieldMergeConflictResolver;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.ConflictResolverProperties;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.ConflictStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving a conflict of a hot document with the configured strategies, with several replicator threads
+ * resolving conflicts of the same collection concurrently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class ConflictResolverBenchmark {
+
+    @Param({"LAST_WRITER_WINS", "MERGE"})
+    public ConflictStrategy strategy;
+
+    @Param({"10", "100"})
+    public int fields;
+
+    private FieldMergeConflictResolver resolver;
+    private Document local;
+    private Document remote;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        CouchbaseLite.init();
+        ConflictResolverProperties properties = new ConflictResolverProperties();
+        properties.setStrategy(strategy);
+        properties.setCounterFields(List.of("quantity"));
+        resolver = new FieldMergeConflictResolver("bench.docs", properties, new SimpleMeterRegistry());
+        local = revision("device1", 1_000L, fields);
+        remote = revision("device2", 2_000L, fields);
+    }
+
+    private static Document revision(String device, long updatedAt, int fields) {
+        Map<String, Object> quantity = new HashMap<>(Map.of("device1", 10, "device2", 20));
+        quantity.put(device, 30); // the local device has counted further than the other revision knows
+        MutableDocument doc = new MutableDocument("doc:00000001")
+                .setString("rfid", "123456789")
+                .setLong("updatedAt", updatedAt)
+                .setValue("quantity", quantity);
+        for (int i = 0; i < fields; i++) {
+            doc.setString("field" + i, device + "-" + i);
+        }
+        doc.setString(device + "-only", "value");
+        return doc;
+    }
+
+    @Benchmark
+    public Document resolve() {
+        return resolver.resolve("doc:00000001", local, remote);
+    }
+}
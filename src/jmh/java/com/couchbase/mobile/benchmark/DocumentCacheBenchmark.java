@@ -0,0 +1,59 @@
+package com.couchbase.mobile.benchmark;
+
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Document;
+import com.couchbase.mobile.client.ClientLite;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.COLLECTION;
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.id;
+
+/**
+ * Reads by id of a hot set of {@code hotSet} reference documents, straight from the collection vs through the
+ * {@link com.couchbase.mobile.client.DocumentCache} of {@link ClientLite#getDocument}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DocumentCacheBenchmark {
+    private static final int DOCUMENTS = 10_000;
+
+    @Param({"1000", "5000"})
+    public int hotSet;
+
+    @Param({"256", "4096"})
+    public int documentSize;
+
+    private BenchmarkDatabase fixture;
+    private ClientLite client;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkDatabase();
+        fixture.populate(DOCUMENTS, documentSize);
+        fixture.getProperties().getLocal().getDocumentCache().setEnabled(true);
+        client = fixture.client();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    private String hotId() {
+        return id(ThreadLocalRandom.current().nextInt(hotSet));
+    }
+
+    @Benchmark
+    public Document uncached() throws CouchbaseLiteException {
+        return fixture.getCollection().getDocument(hotId());
+    }
+
+    @Benchmark
+    public Document cached() throws CouchbaseLiteException {
+        return client.getDocument(COLLECTION, hotId());
+    }
+}
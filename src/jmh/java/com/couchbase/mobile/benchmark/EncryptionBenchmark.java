@@ -0,0 +1,97 @@
+package com.couchbase.mobile.benchmark;
+
+import com.couchbase.lite.Collection;
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Database;
+import com.couchbase.lite.DatabaseConfiguration;
+import com.couchbase.lite.EncryptionKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.COLLECTION;
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.SCOPE;
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.document;
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.id;
+
+/**
+ * Cost of database encryption: open time and batched write throughput of a plain database vs one encrypted with a
+ * raw 32-byte key vs one encrypted with a password. The password is stretched with PBKDF2 when its
+ * {@link EncryptionKey} is built, which {@link #open()} does on every call like an application startup does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EncryptionBenchmark {
+    private static final int DOCUMENTS = 1_000;
+    private static final int BATCH = 100;
+    private static final String PASSWORD = "benchmark-password";
+    // opened only by open(), the fixture database stays open for saveBatched()
+    private static final String COLD_DATABASE = "cold";
+
+    @Param({"none", "raw", "password"})
+    public String encryption;
+
+    private BenchmarkDatabase fixture;
+    private final byte[] rawKey = new byte[32];
+    private final AtomicLong sequence = new AtomicLong(DOCUMENTS);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        new SecureRandom().nextBytes(rawKey);
+        fixture = new BenchmarkDatabase(configuration());
+        fixture.populate(DOCUMENTS, 1024);
+        Database cold = new Database(COLD_DATABASE, coldConfiguration());
+        try {
+            Collection collection = cold.createCollection(COLLECTION, SCOPE);
+            cold.inBatch(() -> {
+                for (int i = 0; i < DOCUMENTS; i++) {
+                    collection.save(document(id(i), 1024));
+                }
+            });
+        } finally {
+            cold.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    /**
+     * @return configuration with a new key, derived from the password with PBKDF2 in the {@code password} case
+     */
+    private DatabaseConfiguration configuration() {
+        DatabaseConfiguration config = new DatabaseConfiguration();
+        switch (encryption) {
+            case "raw" -> config.setEncryptionKey(new EncryptionKey(rawKey));
+            case "password" -> config.setEncryptionKey(new EncryptionKey(PASSWORD));
+            default -> { }
+        }
+        return config;
+    }
+
+    private DatabaseConfiguration coldConfiguration() {
+        DatabaseConfiguration config = configuration();
+        config.setDirectory(fixture.getDirectory().getAbsolutePath());
+        return config;
+    }
+
+    @Benchmark
+    public void open() throws CouchbaseLiteException {
+        new Database(COLD_DATABASE, coldConfiguration()).close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void saveBatched() throws CouchbaseLiteException {
+        fixture.getDatabase().inBatch(() -> {
+            for (int i = 0; i < BATCH; i++) {
+                fixture.getCollection().save(document(id(sequence.getAndIncrement()), 1024));
+            }
+        });
+    }
+}
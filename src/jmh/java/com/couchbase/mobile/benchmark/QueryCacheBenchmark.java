@@ -0,0 +1,60 @@
+package com.couchbase.mobile.benchmark;
+
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Parameters;
+import com.couchbase.lite.Query;
+import com.couchbase.lite.Result;
+import com.couchbase.lite.ResultSet;
+import com.couchbase.mobile.client.ClientLite;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.couchbase.mobile.benchmark.BenchmarkDatabase.id;
+
+/**
+ * Compile cost saved by {@link com.couchbase.mobile.client.QueryCache}: the same parameterized lookup executed by
+ * creating the query on every call vs through {@link ClientLite#query}, which reuses the compiled query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryCacheBenchmark {
+    private static final String STATEMENT = "SELECT meta().id, rfid, type FROM bench.docs WHERE meta().id >= $from ORDER BY meta().id LIMIT 10";
+    private static final int DOCUMENTS = 10_000;
+
+    private BenchmarkDatabase fixture;
+    private ClientLite client;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new BenchmarkDatabase();
+        fixture.populate(DOCUMENTS, 256);
+        client = fixture.client();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    private Parameters parameters() {
+        return new Parameters().setString("from", id(ThreadLocalRandom.current().nextInt(DOCUMENTS)));
+    }
+
+    @Benchmark
+    public List<Result> uncached() throws CouchbaseLiteException {
+        Query query = fixture.getDatabase().createQuery(STATEMENT);
+        query.setParameters(parameters());
+        try (ResultSet rs = query.execute()) {
+            return rs.allResults();
+        }
+    }
+
+    @Benchmark
+    public List<Result> cached() throws CouchbaseLiteException {
+        return client.query("BENCH_LOOKUP", STATEMENT, parameters());
+    }
+}
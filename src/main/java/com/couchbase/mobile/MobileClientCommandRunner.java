@@ -1,7 +1,9 @@
 package com.couchbase.mobile;
 
 import com.couchbase.mobile.client.ClientLite;
+import com.couchbase.mobile.load.LoadGenerator;
 import com.couchbase.mobile.menu.MainMenu;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -14,11 +16,13 @@ import static com.couchbase.lite.ReplicatorActivityLevel.STOPPED;
 public class MobileClientCommandRunner implements CommandLineRunner {
 
     private final ClientLite client;
+    private final MeterRegistry meterRegistry;
     private final Thread backgroundMenu;
 
-    public MobileClientCommandRunner(ClientLite client) {
+    public MobileClientCommandRunner(ClientLite client, MeterRegistry meterRegistry) {
         // Constructor
         this.client = client;
+        this.meterRegistry = meterRegistry;
         this.backgroundMenu = new Thread(new MainMenu(client));
     }
 
@@ -28,18 +32,33 @@ public class MobileClientCommandRunner implements CommandLineRunner {
     }
 
     private void showMenu(){
-        client.getReplicator().addChangeListener(change -> {
+        client.addChangeListener(change -> {
             if (!change.getReplicator().isClosed() && backgroundMenu.isAlive() && (change.getStatus().getActivityLevel().equals(IDLE) || change.getStatus().getActivityLevel().equals(STOPPED))) {
                 log.info("Replication completed successfully.");
-                //TODO add triggered event here to awake the menu in case it is waiting for the replication to finish
             }
         });
         backgroundMenu.start();
     }
 
+    private void runLoad() {
+        if (client.getProperties().getLoad().isReplicate()) {
+            client.start();
+        }
+        try {
+            new LoadGenerator(client, client.getProperties().getLoad(), meterRegistry).run();
+        } finally {
+            client.close();
+            System.exit(0);
+        }
+    }
+
     @Override
     public void run(String... args) throws Exception {
         welcome();
-        showMenu();
+        if (client.getProperties().getLoad().isEnabled()) {
+            runLoad();
+        } else {
+            showMenu();
+        }
     }
 }
@@ -0,0 +1,116 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.*;
+import com.couchbase.lite.Collection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attaches file or stream content to documents as blobs without loading it in memory. The content is streamed once
+ * to compute its SHA-1 digest (the blob store key) and, when a blob with that digest is already stored, the existing
+ * blob is referenced instead of being written again. Otherwise the blob is streamed from the file when the document
+ * is saved. Streams are spooled to a temporary file next to the database so they can be read twice.
+ */
+@Slf4j
+public class BlobIngestor {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Database database;
+    private final Path spoolDir;
+    private final Counter written;
+    private final Counter deduplicated;
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong bytesDeduplicated = new AtomicLong();
+
+    public BlobIngestor(Database database, Path spoolDir, MeterRegistry registry) {
+        this.database = database;
+        this.spoolDir = spoolDir;
+        this.written = Counter.builder("couchbase.blobs.bytes").tag("outcome", "written").baseUnit("bytes").register(registry);
+        this.deduplicated = Counter.builder("couchbase.blobs.bytes").tag("outcome", "deduplicated").baseUnit("bytes").register(registry);
+    }
+
+    public record Attachment(String digest, long length, boolean deduplicated) {}
+
+    public Attachment attach(Collection collection, String id, String property, Path file, String contentType) throws IOException, CouchbaseLiteException {
+        String digest;
+        try (InputStream in = Files.newInputStream(file)) {
+            digest = digest(in, OutputStream.nullOutputStream());
+        }
+        return attach(collection, id, property, file, contentType, digest);
+    }
+
+    public Attachment attach(Collection collection, String id, String property, InputStream content, String contentType) throws IOException, CouchbaseLiteException {
+        Files.createDirectories(spoolDir);
+        Path spool = Files.createTempFile(spoolDir, "blob-", ".tmp");
+        try {
+            String digest;
+            try (OutputStream out = Files.newOutputStream(spool)) {
+                digest = digest(content, out);
+            }
+            return attach(collection, id, property, spool, contentType, digest);
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private Attachment attach(Collection collection, String id, String property, Path file, String contentType, String digest) throws IOException, CouchbaseLiteException {
+        long length = Files.size(file);
+        Blob blob = database.getBlob(Map.of(
+                "@type", "blob",
+                "digest", digest,
+                "length", length,
+                "content_type", contentType));
+        boolean existing = blob != null;
+        if (!existing) {
+            blob = new Blob(contentType, file.toUri().toURL());
+        }
+        Document doc = collection.getDocument(id);
+        MutableDocument mDoc = doc == null ? new MutableDocument(id) : doc.toMutable();
+        collection.save(mDoc.setBlob(property, blob));
+        (existing ? deduplicated : written).increment(length);
+        (existing ? bytesDeduplicated : bytesWritten).addAndGet(length);
+        log.debug("Attached {} ({} bytes, {}) to {}.{}", digest, length, existing ? "deduplicated" : "written", id, property);
+        return new Attachment(digest, length, existing);
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getBytesDeduplicated() {
+        return bytesDeduplicated.get();
+    }
+
+    /**
+     * Copies the content to {@code out} computing the digest the same way the blob store does.
+     */
+    private static String digest(InputStream content, OutputStream out) throws IOException {
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // the caller owns the content stream, it's not closed here
+        DigestInputStream in = new DigestInputStream(content, sha1);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return "sha1-" + Base64.getEncoder().encodeToString(sha1.digest());
+    }
+}
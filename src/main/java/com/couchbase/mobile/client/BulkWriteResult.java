@@ -0,0 +1,53 @@
+package com.couchbase.mobile.client;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk write executed by {@link BulkWriter}. Documents that failed are reported by id together with the
+ * error message, the rest of the load is not aborted.
+ */
+@Getter
+public class BulkWriteResult {
+    private final String operation;
+    private final String collection;
+    private long written = 0;
+    private long skipped = 0;
+    private int chunks = 0;
+    private Duration elapsed = Duration.ZERO;
+    private final Map<String, String> failures = new LinkedHashMap<>();
+
+    BulkWriteResult(String operation, String collection) {
+        this.operation = operation;
+        this.collection = collection;
+    }
+
+    void addChunk(long written, long skipped, Map<String, String> failures, Duration elapsed) {
+        this.chunks++;
+        this.written += written;
+        this.skipped += skipped;
+        this.failures.putAll(failures);
+        this.elapsed = this.elapsed.plus(elapsed);
+    }
+
+    public Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public double getThroughput() {
+        return elapsed.isZero() ? 0 : written * 1_000_000_000d / elapsed.toNanos();
+    }
+
+    public String toString() {
+        return "%s on `%s`: %d written, %d skipped, %d failed in %d chunks (%d ms, %.1f docs/s)"
+                .formatted(operation, collection, written, skipped, failures.size(), chunks, elapsed.toMillis(), getThroughput());
+    }
+}
@@ -0,0 +1,110 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.*;
+import com.couchbase.lite.Collection;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Splits bulk writes into chunks of {@code batchSize} documents and runs every chunk inside a single
+ * {@link Database#inBatch(UnitOfWork)} transaction, so the documents of a chunk share one commit instead of paying
+ * one transaction each.
+ */
+@Slf4j
+public class BulkWriter {
+
+    @FunctionalInterface
+    interface Operation<T> {
+        /**
+         * @return false when the item was skipped (i.e. deleting a document that does not exist)
+         */
+        boolean apply(Collection collection, T item) throws CouchbaseLiteException;
+    }
+
+    private final Database database;
+    private final int batchSize;
+
+    public BulkWriter(Database database, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batch size must be greater than 0: " + batchSize);
+        }
+        this.database = database;
+        this.batchSize = batchSize;
+    }
+
+    public BulkWriteResult saveAll(Collection collection, Iterator<MutableDocument> documents) {
+        return write("saveAll", collection, documents, Document::getId, (c, doc) -> {
+            c.save(doc);
+            return true;
+        });
+    }
+
+    public BulkWriteResult upsertAll(Collection collection, Iterator<Map.Entry<String, Map<String, Object>>> documents) {
+        return write("upsertAll", collection, documents, Map.Entry::getKey, (c, entry) -> {
+            Document existing = c.getDocument(entry.getKey());
+            MutableDocument doc = existing == null ? new MutableDocument(entry.getKey()) : existing.toMutable();
+            entry.getValue().forEach(doc::setValue);
+            c.save(doc);
+            return true;
+        });
+    }
+
+    public BulkWriteResult deleteAll(Collection collection, Iterator<String> ids) {
+        return write("deleteAll", collection, ids, Function.identity(), (c, id) -> {
+            Document existing = c.getDocument(id);
+            if (existing == null) {
+                return false;
+            }
+            c.delete(existing);
+            return true;
+        });
+    }
+
+    private <T> BulkWriteResult write(String operation, Collection collection, Iterator<T> items, Function<T, String> idOf, Operation<T> op) {
+        BulkWriteResult result = new BulkWriteResult(operation, collection.getFullName());
+        List<T> chunk = new ArrayList<>(batchSize);
+        while (items.hasNext()) {
+            chunk.add(items.next());
+            if (chunk.size() == batchSize) {
+                writeChunk(result, collection, chunk, idOf, op);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(result, collection, chunk, idOf, op);
+        }
+        log.debug("{}", result);
+        return result;
+    }
+
+    private <T> void writeChunk(BulkWriteResult result, Collection collection, List<T> chunk, Function<T, String> idOf, Operation<T> op) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        long[] counters = new long[2]; // written, skipped
+        long start = System.nanoTime();
+        try {
+            database.inBatch(() -> {
+                for (T item : chunk) {
+                    try {
+                        counters[op.apply(collection, item) ? 0 : 1]++;
+                    } catch (CouchbaseLiteException e) {
+                        // a failed document doesn't roll back the rest of the chunk
+                        failures.put(idOf.apply(item), e.getMessage());
+                    }
+                }
+            });
+        } catch (CouchbaseLiteException e) {
+            // the whole transaction has been rolled back, so every document of the chunk is reported as failed
+            log.error("Error committing {} chunk #{} on `{}`: {}", result.getOperation(), result.getChunks() + 1, collection.getFullName(), e.getMessage());
+            counters[0] = 0;
+            counters[1] = 0;
+            chunk.forEach(item -> failures.put(idOf.apply(item), e.getMessage()));
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        result.addChunk(counters[0], counters[1], failures, elapsed);
+        log.debug(" - {} chunk #{} on `{}`: {} docs in {} ms ({} docs/s), {} failed", result.getOperation(), result.getChunks(),
+                collection.getFullName(), chunk.size(), elapsed.toMillis(), elapsed.isZero() ? 0 : counters[0] * 1_000_000_000L / elapsed.toNanos(), failures.size());
+    }
+}
@@ -0,0 +1,18 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Document;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Document changes of a collection delivered by a {@link ChangeFeedPublisher}, in the order they were notified.
+ * {@code documents} is only filled when {@code resolve-documents} is enabled; ids missing from it were deleted or
+ * purged by the time the batch was delivered.
+ */
+public record ChangeBatch(String collection, List<String> documentIds, Map<String, Document> documents) {
+
+    public int size() {
+        return documentIds.size();
+    }
+}
@@ -0,0 +1,255 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Collection;
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Document;
+import com.couchbase.lite.ListenerToken;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.ChangeFeedProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the local changes of one or more collections, including the ones pulled by the replicator, as batches of
+ * document ids. Every subscriber has its own bounded buffer: ids changed again while still buffered are delivered once,
+ * batches are only delivered on demand, and when the buffer is full the {@code overflow} policy drops the oldest or
+ * the latest ids, or fails the subscriber. Deliveries run on the given executor, never on the database thread.
+ */
+@Slf4j
+public class ChangeFeedPublisher implements Flow.Publisher<ChangeBatch>, AutoCloseable {
+    private record Change(String collection, String id) {}
+
+    private final Map<String, Collection> collections = new LinkedHashMap<>();
+    private final ChangeFeedProperties properties;
+    private final Executor executor;
+    private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final List<ListenerToken> tokens = new ArrayList<>();
+    private final Counter delivered;
+    private final Counter dropped;
+    private volatile boolean closed = false;
+
+    public ChangeFeedPublisher(String name, java.util.Collection<Collection> collections, ChangeFeedProperties properties,
+                               Executor executor, MeterRegistry registry) {
+        this.properties = properties;
+        this.executor = executor;
+        this.delivered = Counter.builder("couchbase.changefeed.delivered").tag("feed", name).register(registry);
+        this.dropped = Counter.builder("couchbase.changefeed.dropped").tag("feed", name).register(registry);
+        collections.forEach(collection -> {
+            this.collections.put(collection.getName(), collection);
+            this.tokens.add(collection.addChangeListener(change -> {
+                for (FeedSubscription subscription : subscriptions) {
+                    subscription.offer(collection.getName(), change.getDocumentIDs());
+                }
+            }));
+        });
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeBatch> subscriber) {
+        Objects.requireNonNull(subscriber);
+        FeedSubscription subscription = new FeedSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.complete();
+        } else {
+            subscriptions.add(subscription);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops listening to the collections, subscribers receive the ids already buffered and then complete.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        tokens.forEach(ListenerToken::remove);
+        tokens.clear();
+        subscriptions.forEach(FeedSubscription::complete);
+    }
+
+    private class FeedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ChangeBatch> subscriber;
+        private final LinkedHashSet<Change> pending = new LinkedHashSet<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean cancelled = false;
+        private volatile boolean completed = false;
+        private volatile Throwable failure;
+
+        FeedSubscription(Flow.Subscriber<? super ChangeBatch> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(String collection, List<String> ids) {
+            if (cancelled) {
+                return;
+            }
+            synchronized (pending) {
+                for (String id : ids) {
+                    Change change = new Change(collection, id);
+                    if (pending.contains(change)) {
+                        continue;
+                    }
+                    if (pending.size() >= properties.getBufferSize()) {
+                        switch (properties.getOverflow()) {
+                            case DROP_OLDEST -> {
+                                Iterator<Change> oldest = pending.iterator();
+                                oldest.next();
+                                oldest.remove();
+                            }
+                            case DROP_LATEST -> {
+                                dropped.increment();
+                                continue;
+                            }
+                            case ERROR -> failure = new IllegalStateException(
+                                    "Change feed buffer of %d document ids overflowed".formatted(properties.getBufferSize()));
+                        }
+                        dropped.increment();
+                        if (failure != null) {
+                            break;
+                        }
+                    }
+                    pending.add(change);
+                }
+            }
+            schedule();
+        }
+
+        void complete() {
+            completed = true;
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Non-positive subscription request: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (pending) {
+                pending.clear();
+            }
+        }
+
+        private boolean hasWork() {
+            if (cancelled) {
+                return false;
+            }
+            if (failure != null) {
+                return true;
+            }
+            synchronized (pending) {
+                return pending.isEmpty() ? completed : demand.get() > 0;
+            }
+        }
+
+        private void schedule() {
+            if (hasWork() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // delivered with the next change or request
+                    scheduled.set(false);
+                    log.warn("Change feed executor rejected the delivery of the pending changes");
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!cancelled) {
+                    if (failure != null) {
+                        cancel();
+                        subscriber.onError(failure);
+                        return;
+                    }
+                    List<Change> batch = next();
+                    if (batch.isEmpty()) {
+                        if (completed && isEmpty()) {
+                            cancel();
+                            subscriber.onComplete();
+                        }
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    delivered.increment(batch.size());
+                    subscriber.onNext(toBatch(batch));
+                }
+            } catch (RuntimeException e) {
+                log.error("Error in change feed subscriber, cancelling it", e);
+                cancel();
+            } finally {
+                scheduled.set(false);
+                schedule();
+            }
+        }
+
+        private boolean isEmpty() {
+            synchronized (pending) {
+                return pending.isEmpty();
+            }
+        }
+
+        /**
+         * @return the next run of ids of the same collection, empty when there is nothing to deliver or no demand
+         */
+        private List<Change> next() {
+            List<Change> batch = new ArrayList<>();
+            if (demand.get() <= 0) {
+                return batch;
+            }
+            synchronized (pending) {
+                Iterator<Change> changes = pending.iterator();
+                while (changes.hasNext() && batch.size() < properties.getBatchSize()) {
+                    Change change = changes.next();
+                    if (!batch.isEmpty() && !batch.get(0).collection().equals(change.collection())) {
+                        break;
+                    }
+                    batch.add(change);
+                    changes.remove();
+                }
+            }
+            return batch;
+        }
+
+        private ChangeBatch toBatch(List<Change> changes) {
+            String name = changes.get(0).collection();
+            List<String> ids = changes.stream().map(Change::id).toList();
+            Map<String, Document> documents = new LinkedHashMap<>();
+            if (properties.isResolveDocuments()) {
+                Collection collection = collections.get(name);
+                for (String id : ids) {
+                    try {
+                        Document doc = collection.getDocument(id);
+                        if (doc != null) {
+                            documents.put(id, doc);
+                        }
+                    } catch (CouchbaseLiteException e) {
+                        log.error("Error resolving changed document {}", id, e);
+                    }
+                }
+            }
+            return new ChangeBatch(name, ids, Collections.unmodifiableMap(documents));
+        }
+    }
+}
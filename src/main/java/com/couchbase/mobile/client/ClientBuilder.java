@@ -6,25 +6,46 @@ import com.couchbase.lite.logging.ConsoleLogSink;
 import com.couchbase.lite.logging.FileLogSink;
 import com.couchbase.lite.logging.LogSinks;
 import com.couchbase.mobile.config.CouchbaseLiteProperties;
+import com.couchbase.mobile.listeners.ReplicationMetricsListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.FileSystemUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import static java.lang.String.join;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static com.couchbase.mobile.config.CouchbaseLiteProperties.RemoteProperties;
 import static com.couchbase.mobile.config.CouchbaseLiteProperties.AuthenticatorProperties;
 
 
 @Slf4j
 public class ClientBuilder {
+    private static final int RAW_KEY_SIZE = 32;
+    // Couchbase Lite log sinks are process wide
+    private static Slf4jLogSink logSink;
+
     private final CouchbaseLiteProperties properties;
+    private final MeterRegistry meterRegistry;
 
     public ClientBuilder(CouchbaseLiteProperties properties) {
+        this(properties, Metrics.globalRegistry);
+    }
+
+    public ClientBuilder(CouchbaseLiteProperties properties, MeterRegistry meterRegistry) {
         this.properties = properties;
+        this.meterRegistry = meterRegistry;
     }
 
     private void flushPreviousDb(boolean flush, File dbpath) {
@@ -33,13 +54,94 @@ public class ClientBuilder {
         }
     }
 
-    private Database buildDB() throws CouchbaseLiteException {
-        File dbPathFile = new File(properties.getLocal().getDbPath()+ File.separator+ properties.getRemote().getAuthenticator().getUsername());
-        flushPreviousDb(this.properties.getLocal().isFlushPreviousDb(),dbPathFile);
+    /**
+     * Opens the database, which is either the one kept from a previous run, a copy of the prebuilt {@code seed-db}
+     * snapshot (keeping its checkpoint, so the first replication only pulls the delta) or a brand-new empty one.
+     * The startup time of each path is recorded in {@code couchbase.database.open}.
+     */
+    private Database buildDB(String username, boolean flush) throws CouchbaseLiteException {
+        long start = System.nanoTime();
+        File dbPathFile = new File(properties.getLocal().getDbPath()+ File.separator+ username);
+        flushPreviousDb(flush,dbPathFile);
         DatabaseConfiguration config = new DatabaseConfiguration();
         config.setDirectory(dbPathFile.getAbsolutePath());
-        Database db = new Database(properties.getLocal().getDatabase(), config);
-        return setupCollections(db);
+        if (properties.getLocal().isEncryptedDb()) {
+            config.setEncryptionKey(encryptionKey(properties.getLocal()));
+        }
+        String name = properties.getLocal().getDatabase();
+        String startPath = "empty";
+        if (Database.exists(name, dbPathFile)) {
+            startPath = "existing";
+        } else if (properties.getLocal().isSeeded()) {
+            File seed = properties.getLocal().getSeedDbFile();
+            if (seed.isDirectory()) {
+                if (!dbPathFile.exists() && !dbPathFile.mkdirs()) {
+                    log.error("Database path: {} folder cannot be created", dbPathFile);
+                }
+                Database.copy(seed, name, config); // an encrypted seed must use the configured key
+                startPath = "seeded";
+            } else {
+                log.warn("Seed database {} not found, creating an empty database", seed.getAbsolutePath());
+            }
+        }
+        Database db = setupIndexes(setupCollections(new Database(name, config)));
+        long elapsed = System.nanoTime() - start;
+        String encryption = !properties.getLocal().isEncryptedDb() ? "none" : properties.getLocal().isRawEncryptionKey() ? "raw" : "password";
+        Timer.builder("couchbase.database.open").tag("path", startPath).tag("encryption", encryption).register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Database {} opened from {} path in {} ms{}", db.getPath(), startPath, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                properties.getLocal().isEncryptedDb() ? " (encrypted)" : "");
+        return db;
+    }
+
+    /**
+     * A raw key from {@code encryption-key-file} or {@code encryption-key-env} takes precedence over the
+     * {@code encryption-key} password.
+     */
+    static EncryptionKey encryptionKey(CouchbaseLiteProperties.LocalDBProperties local) {
+        if (!local.isRawEncryptionKey()) {
+            return new EncryptionKey(local.getEncryptionKey());
+        }
+        byte[] key;
+        if (local.getEncryptionKeyFile() != null && !local.getEncryptionKeyFile().isEmpty()) {
+            try {
+                key = Files.readAllBytes(Path.of(local.getEncryptionKeyFile()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read the encryption key file " + local.getEncryptionKeyFile(), e);
+            }
+        } else {
+            String value = System.getenv(local.getEncryptionKeyEnv());
+            if (value == null) {
+                throw new IllegalStateException("Environment variable %s with the encryption key is not set".formatted(local.getEncryptionKeyEnv()));
+            }
+            key = value.getBytes(StandardCharsets.US_ASCII);
+        }
+        return new EncryptionKey(rawKey(key));
+    }
+
+    private static byte[] rawKey(byte[] key) {
+        if (key.length == RAW_KEY_SIZE) {
+            return key;
+        }
+        try {
+            byte[] decoded = Base64.getDecoder().decode(new String(key, StandardCharsets.US_ASCII).trim());
+            if (decoded.length == RAW_KEY_SIZE) {
+                return decoded;
+            }
+        } catch (IllegalArgumentException e) {
+            // not Base64, reported below
+        }
+        throw new IllegalStateException("The encryption key must be %d raw or Base64 encoded bytes".formatted(RAW_KEY_SIZE));
+    }
+
+    /**
+     * Removes the SLF4J log sink and stops its thread once the records still buffered are logged.
+     */
+    public static synchronized void closeLogSink() {
+        if (logSink != null) {
+            LogSinks.get().setCustom(null);
+            logSink.close();
+            logSink = null;
+        }
     }
 
     private void flushPreviousLogs(boolean flush, File logPath) {
@@ -58,7 +160,17 @@ public class ClientBuilder {
         }
         flushPreviousLogs (properties.getLocal().isFlushPreviousDb(), logPath);
         log.info("Setting database logs to {}", logPath.getAbsolutePath());
-        LogSinks.get().setConsole(new ConsoleLogSink(LogLevel.WARNING)); // TODO set level from properties independently of the file logs
+        LogSinks.get().setConsole(new ConsoleLogSink(properties.getLog().getConsoleLevel()));
+        if (properties.getLog().getSlf4j().isEnabled()) {
+            synchronized (ClientBuilder.class) {
+                Slf4jLogSink previous = logSink;
+                logSink = new Slf4jLogSink(properties.getLog().getSlf4j(), meterRegistry);
+                LogSinks.get().setCustom(logSink);
+                if (previous != null) {
+                    previous.close();
+                }
+            }
+        }
         FileLogSink.Builder logCfg = new FileLogSink.Builder().setDirectory(logPath.getAbsolutePath())
                 .setMaxFileSize(properties.getLog().getMaxSize())
                 .setMaxKeptFiles(properties.getLog().getRotationCount())
@@ -81,6 +193,34 @@ public class ClientBuilder {
         return database;
     }
 
+    private Database setupIndexes(Database database) {
+        String scopeName = properties.getLocal().getScope().getName();
+        properties.getLocal().getScope().getIndexes().forEach((name, indexes) -> {
+            try {
+                Collection collection = database.getCollection(name, scopeName);
+                if (collection == null) {
+                    log.warn("Collection {} not found in scope {}, skipping its indexes", name, scopeName);
+                    return;
+                }
+                Set<String> declared = indexes.stream().map(CouchbaseLiteProperties.IndexProperties::getName).collect(toSet());
+                for (String existing : collection.getIndexes()) {
+                    if (!declared.contains(existing)) {
+                        collection.deleteIndex(existing);
+                        log.info("Dropped index {} from {}", existing, collection.getFullName());
+                    }
+                }
+                for (CouchbaseLiteProperties.IndexProperties index : indexes) {
+                    long start = System.nanoTime();
+                    collection.createIndex(index.getName(), index.toIndexConfiguration()); // no-op when the index already exists with the same definition
+                    log.info("Index {} on {} ready in {} ms", index, collection.getFullName(), (System.nanoTime() - start) / 1_000_000);
+                }
+            } catch (CouchbaseLiteException e) {
+                log.error("Error setting up indexes of collection {} in scope {}", name, scopeName, e);
+            }
+        });
+        return database;
+    }
+
     private Set<Collection> getCollections(CouchbaseLiteProperties properties, Database db) throws CouchbaseLiteException {
         Set<Collection> collections = new HashSet<>();
         if(properties.getLocal().getScope() == null
@@ -104,20 +244,44 @@ public class ClientBuilder {
         // For example, you might want to initialize a Couchbase Lite database here
         log.info("Building client with properties: " + properties);
         setupDatabaseLogs();
-        Database db = buildDB();
-        Set<Collection> collections = getCollections(properties, db);
-        Replicator replicator = new ReplicatorBuilder(properties.getRemote(), collections).build();
-        return new ClientLite(db, replicator, properties);
+        return build(properties.getRemote().getAuthenticator(), properties.getLocal().isFlushPreviousDb());
+    }
 
+    /**
+     * Builds the client of another user sharing this configuration, the database lives in its own
+     * {@code db-path/<username>} directory. Database logs are not set up again.
+     */
+    public ClientLite build(AuthenticatorProperties user, boolean flushPreviousDb) throws CouchbaseLiteException {
+        Database db = buildDB(user.getUsername(), flushPreviousDb);
+        Set<Collection> collections = getCollections(properties, db);
+        // the filter and conflict meters of the replicators are tagged and removed together with the client ones
+        MeterRegistry clientRegistry = ClientLite.tagged(meterRegistry, db);
+        Map<String, Replicator> replicators = new ReplicatorBuilder(properties.getRemote(), collections, user, clientRegistry).buildShards();
+        ClientLite client = new ClientLite(db, replicators, properties, clientRegistry);
+        replicators.forEach((shard, replicator) -> new ReplicationMetricsListener(client.getMeterRegistry(), shard).attach(replicator));
+        return client;
     }
 
 
     public static class ReplicatorBuilder {
+        public static final String DEFAULT_SHARD = "default";
         final RemoteProperties properties;
+        final AuthenticatorProperties authenticator;
         final Map<String, Collection> collections = new HashMap<>();
+        final MeterRegistry meterRegistry;
 
         public ReplicatorBuilder(RemoteProperties properties, Set<Collection> collections) {
+            this(properties, collections, properties.getAuthenticator());
+        }
+
+        public ReplicatorBuilder(RemoteProperties properties, Set<Collection> collections, AuthenticatorProperties authenticator) {
+            this(properties, collections, authenticator, Metrics.globalRegistry);
+        }
+
+        public ReplicatorBuilder(RemoteProperties properties, Set<Collection> collections, AuthenticatorProperties authenticator, MeterRegistry meterRegistry) {
             this.properties = properties;
+            this.authenticator = authenticator;
+            this.meterRegistry = meterRegistry;
             this.collections.putAll(collections.stream().collect(toMap(Collection::getName, Function.identity() )));
         }
 
@@ -135,6 +299,16 @@ public class ClientBuilder {
                     if (p.getDocumentIDsFilter() != null && !p.getDocumentIDsFilter().isEmpty()) {
                         collectionCfg.setDocumentIDs(p.getDocumentIDsFilter());
                     }
+                    if (p.getPushFilter() != null) {
+                        collectionCfg.setPushFilter(ReplicationFilters.compile(name, "push", p.getPushFilter(), meterRegistry));
+                    }
+                    if (p.getPullFilter() != null) {
+                        collectionCfg.setPullFilter(ReplicationFilters.compile(name, "pull", p.getPullFilter(), meterRegistry));
+                    }
+                    ConflictResolver resolver = FieldMergeConflictResolver.of(name, p.getConflictResolver(), meterRegistry);
+                    if (resolver != null) {
+                        collectionCfg.setConflictResolver(resolver);
+                    }
                     collectionsMap.put(collection, collectionCfg);
                 }else {
                     log.warn(" - CollectionReplication {} not found in local database configuration properties", name);
@@ -146,13 +320,19 @@ public class ClientBuilder {
 
 
 
-        private ReplicatorConfiguration replicatorConfiguration() {
-            Map<Collection, CollectionConfiguration> collectionsCfg = collectionsConfiguration();
+        private String shardOf(String collectionName) {
+            if (properties.isReplicatorPerCollection()) {
+                return collectionName;
+            }
+            CouchbaseLiteProperties.CollectionProperties p = properties.getCollections().get(collectionName);
+            return p == null || p.getShard() == null || p.getShard().isEmpty() ? DEFAULT_SHARD : p.getShard();
+        }
 
+        private ReplicatorConfiguration replicatorConfiguration(Map<Collection, CollectionConfiguration> collectionsCfg) {
             Endpoint endpoint = properties.getEndpoint();
             ReplicatorConfiguration replConfig = new ReplicatorConfiguration(endpoint);
-            log.info("Authenticator: {}", properties.getAuthenticator());
-            replConfig.setAuthenticator(new AuthenticatorBuilder(this.properties.getAuthenticator()).build());   //TODO decide if it would be built or provided
+            log.info("Authenticator: {}", authenticator);
+            replConfig.setAuthenticator(new AuthenticatorBuilder(authenticator).build());   //TODO decide if it would be built or provided
             replConfig.setType(properties.getReplicatorType());
             replConfig.setContinuous(properties.isContinuous());
 
@@ -160,8 +340,26 @@ public class ClientBuilder {
             return replConfig;
         }
 
+        /**
+         * @return a single replicator for all the collections
+         */
         public Replicator build() {
-            return new Replicator(replicatorConfiguration());
+            return new Replicator(replicatorConfiguration(collectionsConfiguration()));
+        }
+
+        /**
+         * @return one replicator per shard, collections are grouped by their {@code shard} property (or one shard per
+         * collection with {@code replicator-per-collection}) so a busy collection doesn't delay the others
+         */
+        public Map<String, Replicator> buildShards() {
+            Map<String, Map<Collection, CollectionConfiguration>> shards = new TreeMap<>();
+            collectionsConfiguration().forEach((collection, cfg) -> shards.computeIfAbsent(shardOf(collection.getName()), k -> new HashMap<>()).put(collection, cfg));
+            Map<String, Replicator> replicators = new LinkedHashMap<>();
+            shards.forEach((shard, collectionsCfg) -> {
+                log.info("Replicator shard `{}`: {}", shard, collectionsCfg.keySet().stream().map(Collection::getName).sorted().collect(joining(",")));
+                replicators.put(shard, new Replicator(replicatorConfiguration(collectionsCfg)));
+            });
+            return replicators;
         }
     }
 
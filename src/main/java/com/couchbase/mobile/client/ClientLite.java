@@ -1,50 +1,157 @@
 package com.couchbase.mobile.client;
 
 import com.couchbase.lite.*;
+import com.couchbase.lite.Collection;
 import com.couchbase.mobile.config.CouchbaseLiteProperties;
+import com.couchbase.mobile.listeners.CoalescingReplicatorListener;
 import com.couchbase.mobile.listeners.StatusChangeListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.Set;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 @Slf4j
 @Data
 public class ClientLite {
-    private static final String FIND_ALL = "SELECT meta().id as `_id`, * FROM %s";
     private final Database database;
-    private final Replicator replicator;
+    private final Map<String, Replicator> replicators;
     private final CouchbaseLiteProperties properties;
+    private final BulkWriter bulkWriter;
+    private final DocumentCounter documentCounter;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ReplicationSupervisor> supervisors = new LinkedHashMap<>();
+    private final QueryProfiler queryProfiler;
+    private final QueryCache queryCache;
+    private final ThreadPoolExecutor listenerExecutor;
+    private final ReplicationStateWatcher stateWatcher;
+    private final Map<String, ChangeFeedPublisher> changeFeeds = new ConcurrentHashMap<>();
+    private final ExecutorService changeFeedExecutor;
+    private final BlobIngestor blobIngestor;
+    private final ExpirationSweeper expirationSweeper;
+    private final MaintenanceScheduler maintenanceScheduler;
+    private final DocumentCache documentCache;
+    private final WriteBehindBuffer writeBehind;
 
     public ClientLite(Database database, Replicator replicator, CouchbaseLiteProperties properties) {
+        this(database, replicator == null ? Map.of() : Map.of(ClientBuilder.ReplicatorBuilder.DEFAULT_SHARD, replicator), properties, Metrics.globalRegistry);
+    }
+
+    /**
+     * @param replicators   replicator of every shard, keyed by shard name
+     * @param registry      registry the meters of the client are published to, tagged with the {@code database} path so
+     *                      the clients of a {@link ClientLitePool} don't share their gauges
+     */
+    public ClientLite(Database database, Map<String, Replicator> replicators, CouchbaseLiteProperties properties, MeterRegistry registry) {
         this.database = database;
-        this.replicator = replicator;
+        this.replicators = Collections.unmodifiableMap(new LinkedHashMap<>(replicators));
         this.properties = properties;
+        // the meters below are registered through the tagged registry, so close() can remove them
+        this.meterRegistry = tagged(registry, database);
+        this.bulkWriter = new BulkWriter(database, properties.getLocal().getBatchSize());
+        this.queryProfiler = new QueryProfiler(meterRegistry, properties.getLocal().getQuery().getSlowThreshold());
+        this.queryCache = new QueryCache(database, properties.getLocal().getQuery().getCacheSize(), meterRegistry);
+        this.documentCounter = new DocumentCounter(getCollections(), properties.getLocal().getCountReconcileInterval());
+        this.listenerExecutor = listenerExecutor(properties.getListeners());
+        Gauge.builder("couchbase.listeners.queue", listenerExecutor, e -> e.getQueue().size()).register(meterRegistry);
+        this.replicators.forEach((shard, replicator) -> {
+            ReplicationSupervisor supervisor = new ReplicationSupervisor(replicator, properties.getRemote().getRetry(), meterRegistry);
+            replicator.addChangeListener(supervisor);
+            supervisors.put(shard, supervisor);
+        });
+        this.stateWatcher = new ReplicationStateWatcher(this.replicators.values());
+        this.changeFeedExecutor = Executors.newCachedThreadPool(daemonThreads("client-change-feed-"));
+        this.expirationSweeper = properties.getLocal().getExpiration().isEmpty() ? null
+                : new ExpirationSweeper(database, getCollections(), properties.getLocal().getExpiration(), properties.getLocal().getExpirationSweepInterval(),
+                queryCache, queryProfiler, properties.getLocal().getBatchSize(), meterRegistry);
+        this.maintenanceScheduler = !properties.getLocal().getMaintenance().isEnabled() ? null
+                : new MaintenanceScheduler(database, getCollections(), properties.getLocal().getMaintenance(), this::getActivityLevel, meterRegistry);
+        this.documentCache = !properties.getLocal().getDocumentCache().isEnabled() ? null
+                : new DocumentCache(getCollections(), properties.getLocal().getDocumentCache().getMaxBytes(), meterRegistry);
+        this.writeBehind = !properties.getLocal().getWriteBehind().isEnabled() ? null
+                : new WriteBehindBuffer(database, properties.getLocal().getWriteBehind(), meterRegistry, this::invalidateCached);
+        this.blobIngestor = new BlobIngestor(database, Path.of(properties.getLocal().getDbPath(), "blob-spool"), meterRegistry);
+    }
+
+    /**
+     * @return registry adding the {@code database} tag to the meters registered through it and forwarding them to
+     * {@code registry}, removing a meter from it also removes it from {@code registry}
+     */
+    static MeterRegistry tagged(MeterRegistry registry, Database database) {
+        if (registry instanceof TaggedMeterRegistry) {
+            return registry; // already the registry of this client, as built by ClientBuilder
+        }
+        CompositeMeterRegistry tagged = new TaggedMeterRegistry();
+        tagged.config().commonTags("database", database.getPath());
+        tagged.add(registry);
+        return tagged;
+    }
+
+    private static class TaggedMeterRegistry extends CompositeMeterRegistry {
     }
 
     public long count() {
-        try {
-            return Objects.requireNonNull(database.getScope(properties.getLocal().getScope().getName())).getCollections().stream().mapToLong(Collection::getCount).sum();
-        } catch (CouchbaseLiteException e) {
-            log.error("Error counting documents", e);
-            throw new RuntimeException(e);
+        return documentCounter.count();
+    }
+
+    public long count(String collectionName) {
+        return documentCounter.count(collectionName);
+    }
+
+    /**
+     * @return number of documents per collection full name
+     */
+    public Map<String, Long> getCounts() {
+        return documentCounter.counts();
+    }
+
+    /**
+     * Reads a document by id, through the document cache when {@code document-cache} is enabled. The returned
+     * document is immutable, edit a {@link Document#toMutable()} copy of it. The writes made through this client are
+     * visible right away, other writes once their change notification is delivered: read-modify-write cycles must
+     * read the collection or use {@link #updateLater(String, String, Consumer)}.
+     */
+    public Document getDocument(String collectionName, String id) throws CouchbaseLiteException {
+        Collection collection = Objects.requireNonNull(getCollection(collectionName), collectionName);
+        return documentCache == null ? collection.getDocument(id) : documentCache.get(collection, id);
+    }
+
+    private void invalidateCached(Collection collection, String id) {
+        if (documentCache != null) {
+            documentCache.invalidate(collection.getFullName(), List.of(id));
         }
     }
 
+    private <T> T invalidateCollection(Collection collection, T result) {
+        if (documentCache != null) {
+            documentCache.invalidate(collection.getFullName());
+        }
+        return result;
+    }
+
     public void printAll(){
         getCollections().forEach(this::printAll);
     }
 
     public void printAll(Collection collection) {
-        List<Result> docs = findAll(collection.getName());
-        log.info("Found {} Documents in the `{}` collection: ", docs.size(), collection.getFullName());
-        docs.forEach(doc -> {
+        log.info("Found {} Documents in the `{}` collection: ", collection.getCount(), collection.getFullName());
+        forEach(collection.getName(), doc -> {
             try {
                 log.info(" - " + doc.toJSON());
             } catch (CouchbaseLiteException e) {
@@ -53,18 +160,135 @@ public class ClientLite {
         });
     }
 
-
+    /**
+     * Materializes the whole collection, prefer {@link #streamAll(String)} or {@link #forEach(String, Consumer)}
+     * for large collections.
+     */
     public List<Result> findAll(String collectionName) {
-        List<Result> results = new ArrayList<>();
+        return streamAll(collectionName).toList();
+    }
+
+    /**
+     * Lazily streams the documents of the collection ordered by id, fetching {@code couchbase.local.page-size}
+     * documents per query. A failed query fails the stream with an {@link IllegalStateException}.
+     */
+    public Stream<Result> streamAll(String collectionName) {
         Collection c = getCollection(collectionName);
-        if(c!=null) {
-            try (ResultSet rs = database.createQuery(FIND_ALL.formatted(c.getFullName())).execute()) {
-                results.addAll(rs.allResults());
-            } catch (CouchbaseLiteException e) {
-                log.error("Error listing documents: " + e.getMessage());
-            }
+        if (c == null) {
+            return Stream.empty();
+        }
+        PagedQueryIterator pages = new PagedQueryIterator(queryCache, queryProfiler, c, properties.getLocal().getPageSize());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    public void forEach(String collectionName, Consumer<Result> consumer) {
+        streamAll(collectionName).forEach(consumer);
+    }
+
+    /**
+     * Executes a N1QL statement, timed and tagged with {@code shape} in the query latency histogram. The compiled
+     * statement is cached, so variable parts must be passed as {@code parameters} instead of being formatted into it.
+     */
+    public List<Result> query(String shape, String statement, Parameters parameters) throws CouchbaseLiteException {
+        return queryCache.execute(null, statement, parameters, query -> queryProfiler.execute(shape, query));
+    }
+
+    public void createIndex(String collectionName, String indexName, IndexConfiguration config) throws CouchbaseLiteException {
+        Collection collection = Objects.requireNonNull(getCollection(collectionName), collectionName);
+        collection.createIndex(indexName, config);
+        queryCache.invalidate(collection.getFullName());
+    }
+
+    public void deleteIndex(String collectionName, String indexName) throws CouchbaseLiteException {
+        Collection collection = Objects.requireNonNull(getCollection(collectionName), collectionName);
+        collection.deleteIndex(indexName);
+        queryCache.invalidate(collection.getFullName());
+    }
+
+    /**
+     * Saves the document through the write-behind buffer when {@code write-behind} is enabled, otherwise immediately.
+     */
+    public void saveLater(String collectionName, MutableDocument document) throws CouchbaseLiteException {
+        Collection collection = Objects.requireNonNull(getCollection(collectionName), collectionName);
+        if (writeBehind == null) {
+            collection.save(document);
+            invalidateCached(collection, document.getId());
+        } else {
+            writeBehind.save(collection, document);
         }
-        return results;
+    }
+
+    /**
+     * Applies the mutation to the document (created if it doesn't exist) through the write-behind buffer when
+     * {@code write-behind} is enabled, so rapid updates of the same document are saved as a single revision.
+     */
+    public void updateLater(String collectionName, String id, Consumer<MutableDocument> mutation) throws CouchbaseLiteException {
+        Collection collection = Objects.requireNonNull(getCollection(collectionName), collectionName);
+        if (writeBehind == null) {
+            Document current = collection.getDocument(id);
+            MutableDocument doc = current == null ? new MutableDocument(id) : current.toMutable();
+            mutation.accept(doc);
+            collection.save(doc);
+            invalidateCached(collection, id);
+        } else {
+            writeBehind.update(collection, id, mutation);
+        }
+    }
+
+    public BulkWriteResult saveAll(Collection collection, Iterable<MutableDocument> documents) {
+        return invalidateCollection(collection, bulkWriter.saveAll(collection, documents.iterator()));
+    }
+
+    public BulkWriteResult saveAll(Collection collection, Stream<MutableDocument> documents) {
+        return invalidateCollection(collection, bulkWriter.saveAll(collection, documents.iterator()));
+    }
+
+    public BulkWriteResult upsertAll(Collection collection, Map<String, Map<String, Object>> documents) {
+        return invalidateCollection(collection, bulkWriter.upsertAll(collection, documents.entrySet().iterator()));
+    }
+
+    public BulkWriteResult upsertAll(Collection collection, Stream<Map.Entry<String, Map<String, Object>>> documents) {
+        return invalidateCollection(collection, bulkWriter.upsertAll(collection, documents.iterator()));
+    }
+
+    public BulkWriteResult deleteAll(Collection collection, Iterable<String> ids) {
+        return invalidateCollection(collection, bulkWriter.deleteAll(collection, ids.iterator()));
+    }
+
+    public BulkWriteResult deleteAll(Collection collection, Stream<String> ids) {
+        return invalidateCollection(collection, bulkWriter.deleteAll(collection, ids.iterator()));
+    }
+
+    /**
+     * Sets the content of the file as a blob property of the document, creating the document if it doesn't exist.
+     * The file is streamed and the stored blob is reused when the same content was already attached.
+     */
+    public BlobIngestor.Attachment attachBlob(String collectionName, String id, String property, Path file, String contentType) throws IOException, CouchbaseLiteException {
+        Collection collection = Objects.requireNonNull(getCollection(collectionName), collectionName);
+        BlobIngestor.Attachment attachment = blobIngestor.attach(collection, id, property, file, contentType);
+        invalidateCached(collection, id);
+        return attachment;
+    }
+
+    /**
+     * Same as {@link #attachBlob(String, String, String, Path, String)}, the stream is spooled to a temporary file
+     * and it's not closed.
+     */
+    public BlobIngestor.Attachment attachBlob(String collectionName, String id, String property, InputStream content, String contentType) throws IOException, CouchbaseLiteException {
+        Collection collection = Objects.requireNonNull(getCollection(collectionName), collectionName);
+        BlobIngestor.Attachment attachment = blobIngestor.attach(collection, id, property, content, contentType);
+        invalidateCached(collection, id);
+        return attachment;
+    }
+
+    /**
+     * Re-encrypts the open database with the new key, or decrypts it when {@code key} is null. Subsequent opens must
+     * use the new key, so update {@code encryption-key*} accordingly.
+     */
+    public void changeEncryptionKey(EncryptionKey key) throws CouchbaseLiteException {
+        long start = System.nanoTime();
+        database.changeEncryptionKey(key);
+        log.info("Database {} {} in {} ms", database.getName(), key == null ? "decrypted" : "re-keyed", (System.nanoTime() - start) / 1_000_000);
     }
 
     public Set<Collection> getCollections() {
@@ -80,22 +304,157 @@ public class ClientLite {
     private void init() {
         // Adding a change listener to the replicator to print the status of the replication
         //TODO add your own implementation of the StatusChangeListener & handle the replication error status
-        this.replicator.addChangeListener(new StatusChangeListener(this));
+        addChangeListener(new StatusChangeListener(this));
+    }
+
+    private static ThreadPoolExecutor listenerExecutor(CouchbaseLiteProperties.ListenerProperties listeners) {
+        return new ThreadPoolExecutor(listeners.getThreads(), listeners.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(listeners.getQueueCapacity()), daemonThreads("client-listener-"));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threads = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * @return the shared publisher of the local changes of the collection, null if the collection doesn't exist
+     */
+    public ChangeFeedPublisher changes(String collectionName) {
+        Collection collection = getCollection(collectionName);
+        if (collection == null) {
+            return null;
+        }
+        return changeFeeds.computeIfAbsent(collection.getFullName(), name ->
+                new ChangeFeedPublisher(name, List.of(collection), properties.getLocal().getChangeFeed(), changeFeedExecutor, meterRegistry));
+    }
+
+    /**
+     * @return the shared publisher of the local changes of every collection of the scope
+     */
+    public ChangeFeedPublisher changes() {
+        return changeFeeds.computeIfAbsent(properties.getLocal().getScope().getName(), name ->
+                new ChangeFeedPublisher(name, getCollections(), properties.getLocal().getChangeFeed(), changeFeedExecutor, meterRegistry));
+    }
+
+    /**
+     * Registers the listener on the replicator of every shard. The listener runs on the client listener executor and
+     * bursts of changes of a shard are coalesced into its latest change, so slow listeners never stall the
+     * replicator notifications.
+     */
+    public void addChangeListener(ReplicatorChangeListener listener) {
+        Counter coalesced = Counter.builder("couchbase.listeners.coalesced").register(meterRegistry);
+        Counter rejected = Counter.builder("couchbase.listeners.rejected").register(meterRegistry);
+        replicators.values().forEach(replicator ->
+                replicator.addChangeListener(new CoalescingReplicatorListener(listener, listenerExecutor, coalesced, rejected)));
+    }
+
+    /**
+     * @return listener tasks waiting for a listener thread
+     */
+    public int getListenerQueueDepth() {
+        return listenerExecutor.getQueue().size();
+    }
+
+    /**
+     * @return the shard name of the replicator, null if it's not managed by this client
+     */
+    public String getShard(Replicator replicator) {
+        return replicators.entrySet().stream().filter(e -> e.getValue() == replicator).map(Map.Entry::getKey).findFirst().orElse(null);
+    }
+
+    /**
+     * @return the status of every shard replicator, keyed by shard name
+     */
+    public Map<String, ReplicatorStatus> getStatuses() {
+        Map<String, ReplicatorStatus> statuses = new LinkedHashMap<>();
+        replicators.forEach((shard, replicator) -> statuses.put(shard, replicator.getStatus()));
+        return statuses;
+    }
+
+    /**
+     * @return the most active level among the shards: BUSY, CONNECTING, OFFLINE, IDLE and finally STOPPED when every
+     * shard is stopped
+     */
+    public ReplicatorActivityLevel getActivityLevel() {
+        return aggregate(replicators.values().stream().map(r -> r.getStatus().getActivityLevel()).toList());
+    }
+
+    static ReplicatorActivityLevel aggregate(java.util.Collection<ReplicatorActivityLevel> levels) {
+        List<ReplicatorActivityLevel> priority = List.of(ReplicatorActivityLevel.BUSY, ReplicatorActivityLevel.CONNECTING,
+                ReplicatorActivityLevel.OFFLINE, ReplicatorActivityLevel.IDLE);
+        return priority.stream().filter(levels::contains).findFirst().orElse(ReplicatorActivityLevel.STOPPED);
+    }
+
+    /**
+     * @return future completed with the level reached by the next change to IDLE, or to STOPPED when a one-shot
+     * replication completes or the replication fails
+     */
+    public CompletableFuture<ReplicatorActivityLevel> startAndAwaitIdle(Duration timeout) {
+        CompletableFuture<ReplicatorActivityLevel> idle = stateWatcher.awaitNext(level -> level == ReplicatorActivityLevel.IDLE || level == ReplicatorActivityLevel.STOPPED, timeout);
+        start();
+        return idle;
+    }
+
+    public CompletableFuture<ReplicatorActivityLevel> stopAndAwaitStopped(Duration timeout) {
+        if (!isStarted()) {
+            return CompletableFuture.completedFuture(ReplicatorActivityLevel.STOPPED);
+        }
+        CompletableFuture<ReplicatorActivityLevel> stopped = stateWatcher.awaitNext(level -> level == ReplicatorActivityLevel.STOPPED, timeout);
+        stop();
+        return stopped;
+    }
+
+    public CompletableFuture<ReplicatorActivityLevel> awaitNextIdle(Duration timeout) {
+        return stateWatcher.awaitNext(level -> level == ReplicatorActivityLevel.IDLE, timeout);
+    }
+
+    public CompletableFuture<ReplicatorActivityLevel> awaitNext(ReplicatorActivityLevel expected, Duration timeout) {
+        return stateWatcher.awaitNext(level -> level == expected, timeout);
     }
 
     public void start() {
-        if (replicator != null) {
-            replicator.start();
-        } else {
+        if (replicators.isEmpty()) {
             log.error("Replicator is null");
+            return;
         }
+        stateWatcher.onStart();
+        replicators.forEach((shard, replicator) -> {
+            supervisors.get(shard).onStart();
+            replicator.start(properties.getRemote().isResetCheckpoint());
+        });
     }
 
     public void close() {
-        if (replicator != null) {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        queryCache.invalidateAll();
+        documentCounter.close();
+        if (expirationSweeper != null) {
+            expirationSweeper.close();
+        }
+        if (maintenanceScheduler != null) {
+            maintenanceScheduler.close();
+        }
+        if (documentCache != null) {
+            documentCache.close();
+        }
+        changeFeeds.values().forEach(ChangeFeedPublisher::close);
+        changeFeeds.clear();
+        replicators.forEach((shard, replicator) -> {
+            supervisors.get(shard).close();
             replicator.stop();
             replicator.close();
-        }
+        });
+        listenerExecutor.shutdown();
+        changeFeedExecutor.shutdown();
+        // a client reopened later registers its own meters, the gauges of this one would shadow them
+        meterRegistry.getMeters().forEach(meterRegistry::remove);
         if (database != null) {
             try {
                 database.close();
@@ -112,14 +471,17 @@ public class ClientLite {
     }
 
     public boolean isStarted() {
-        return replicator != null && !replicator.getStatus().getActivityLevel().equals(ReplicatorActivityLevel.STOPPED);
+        return !getActivityLevel().equals(ReplicatorActivityLevel.STOPPED);
     }
 
     public void stop(){
-        if (replicator != null) {
-            replicator.stop();
-        } else {
+        if (replicators.isEmpty()) {
             log.error("Replicator is null");
+            return;
         }
+        replicators.forEach((shard, replicator) -> {
+            supervisors.get(shard).onStop();
+            replicator.stop();
+        });
     }
 }
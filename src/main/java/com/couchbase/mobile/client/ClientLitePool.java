@@ -0,0 +1,149 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.AuthenticatorProperties;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.PoolProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Serves one {@link ClientLite} per user out of a single process. A user's database and replicator are opened on
+ * first access and at most {@code max-open} clients are kept open; when the limit is reached the least recently used
+ * client is closed, and it is reopened the next time it's requested. Pooled databases are never flushed, they are
+ * kept across evictions and restarts.
+ * Clients returned by {@link #get(AuthenticatorProperties)} must not be kept beyond the current unit of work since
+ * they can be closed by a later eviction.
+ */
+@Slf4j
+public class ClientLitePool implements AutoCloseable {
+    private final ClientBuilder builder;
+    private final PoolProperties properties;
+    // clients being opened are pooled too, so concurrent requests of a user wait for the same client
+    private final LinkedHashMap<String, CompletableFuture<ClientLite>> clients = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter opened;
+    private final Counter evicted;
+
+    public ClientLitePool(ClientBuilder builder, PoolProperties properties, MeterRegistry registry) {
+        this.builder = builder;
+        this.properties = properties;
+        this.opened = Counter.builder("couchbase.pool.opened").register(registry);
+        this.evicted = Counter.builder("couchbase.pool.evicted").register(registry);
+        Gauge.builder("couchbase.pool.open", this, ClientLitePool::size).register(registry);
+    }
+
+    /**
+     * Opens the client outside the pool lock, so opening the database of a user doesn't block the requests of the
+     * users whose client is already open.
+     */
+    public ClientLite get(AuthenticatorProperties user) throws CouchbaseLiteException {
+        CompletableFuture<ClientLite> client;
+        List<Map.Entry<String, CompletableFuture<ClientLite>>> evictions = new ArrayList<>();
+        boolean opening = false;
+        synchronized (this) {
+            client = clients.get(user.getUsername());
+            if (client == null) {
+                while (!clients.isEmpty() && clients.size() >= properties.getMaxOpen()) {
+                    evictions.add(removeEldest());
+                }
+                client = new CompletableFuture<>();
+                clients.put(user.getUsername(), client);
+                opening = true;
+            }
+        }
+        if (opening) {
+            evictions.forEach(entry -> {
+                log.info("Evicting least recently used client of {}", entry.getKey());
+                close(entry.getKey(), entry.getValue());
+            });
+            open(user, client);
+        }
+        return await(client);
+    }
+
+    private void open(AuthenticatorProperties user, CompletableFuture<ClientLite> future) {
+        long start = System.nanoTime();
+        try {
+            ClientLite client = builder.build(user, false);
+            if (properties.isStartReplication()) {
+                client.start();
+            }
+            opened.increment();
+            future.complete(client);
+            log.info("Opened client of {} in {} ms ({}/{} open)", user.getUsername(), (System.nanoTime() - start) / 1_000_000, size(), properties.getMaxOpen());
+        } catch (CouchbaseLiteException | RuntimeException e) {
+            synchronized (this) {
+                clients.remove(user.getUsername(), future);
+            }
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static ClientLite await(CompletableFuture<ClientLite> client) throws CouchbaseLiteException {
+        try {
+            return client.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof CouchbaseLiteException cause) {
+                throw cause;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    public boolean evict(String username) {
+        CompletableFuture<ClientLite> client;
+        synchronized (this) {
+            client = clients.remove(username);
+        }
+        if (client == null) {
+            return false;
+        }
+        close(username, client);
+        evicted.increment();
+        return true;
+    }
+
+    public synchronized int size() {
+        return clients.size();
+    }
+
+    public synchronized Set<String> getOpenUsers() {
+        return new LinkedHashSet<>(clients.keySet());
+    }
+
+    private Map.Entry<String, CompletableFuture<ClientLite>> removeEldest() {
+        Iterator<Map.Entry<String, CompletableFuture<ClientLite>>> eldest = clients.entrySet().iterator();
+        Map.Entry<String, CompletableFuture<ClientLite>> entry = eldest.next();
+        eldest.remove();
+        evicted.increment();
+        return Map.entry(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Closes the client once it's open, right away unless it's still being opened by another request.
+     */
+    private void close(String username, CompletableFuture<ClientLite> client) {
+        client.thenAccept(c -> {
+            try {
+                c.close();
+            } catch (RuntimeException e) {
+                log.error("Error closing client of {}", username, e);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        Map<String, CompletableFuture<ClientLite>> open;
+        synchronized (this) {
+            open = new LinkedHashMap<>(clients);
+            clients.clear();
+        }
+        open.forEach(this::close);
+    }
+}
@@ -0,0 +1,168 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Blob;
+import com.couchbase.lite.Collection;
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Document;
+import com.couchbase.lite.ListenerToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through LRU cache of documents by collection and id, bounded by the estimated size of the documents. Entries
+ * are invalidated by the collection change notifications, which include the documents pulled by the replicator. A
+ * read that raced with a change of its collection isn't cached, so a notified change is never shadowed by the
+ * revision read before it. The notifications are delivered after the commit, so the writers that read through the
+ * cache also invalidate what they wrote right away. Cached documents are immutable and shared: call
+ * {@link Document#toMutable()} to edit them.
+ */
+public class DocumentCache implements AutoCloseable {
+    private record Key(String collection, String id) {}
+
+    private record Entry(Document document, long size) {}
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, AtomicLong> epochs = new ConcurrentHashMap<>();
+    private final List<ListenerToken> tokens = new ArrayList<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private long bytes = 0;
+
+    public DocumentCache(Set<Collection> collections, long maxBytes, MeterRegistry registry) {
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("couchbase.document.cache").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("couchbase.document.cache").tag("result", "miss").register(registry);
+        this.evictions = Counter.builder("couchbase.document.cache.evictions").register(registry);
+        Gauge.builder("couchbase.document.cache.size", this, DocumentCache::size).register(registry);
+        Gauge.builder("couchbase.document.cache.bytes", this, DocumentCache::getBytes).baseUnit("bytes").register(registry);
+        collections.forEach(collection -> {
+            epochs.put(collection.getFullName(), new AtomicLong());
+            tokens.add(collection.addChangeListener(change -> invalidate(collection.getFullName(), change.getDocumentIDs())));
+        });
+    }
+
+    /**
+     * @return the document, from the cache or read from the collection, null if it doesn't exist
+     */
+    public Document get(Collection collection, String id) throws CouchbaseLiteException {
+        Key key = new Key(collection.getFullName(), id);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry.document();
+            }
+        }
+        misses.increment();
+        AtomicLong epoch = epochs.computeIfAbsent(key.collection(), k -> new AtomicLong());
+        long readEpoch = epoch.get();
+        Document document = collection.getDocument(id);
+        if (document != null) {
+            put(key, new Entry(document, estimate(document)), epoch, readEpoch);
+        }
+        return document;
+    }
+
+    private synchronized void put(Key key, Entry entry, AtomicLong epoch, long readEpoch) {
+        if (epoch.get() != readEpoch || entry.size() > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        bytes += entry.size() - (previous == null ? 0 : previous.size());
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().size();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void invalidate(String collection, java.util.Collection<String> ids) {
+        epochs.computeIfAbsent(collection, k -> new AtomicLong()).incrementAndGet();
+        for (String id : ids) {
+            Entry removed = entries.remove(new Key(collection, id));
+            if (removed != null) {
+                bytes -= removed.size();
+            }
+        }
+    }
+
+    /**
+     * Drops every entry of the collection.
+     */
+    public synchronized void invalidate(String collection) {
+        epochs.computeIfAbsent(collection, k -> new AtomicLong()).incrementAndGet();
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().collection().equals(collection)) {
+                bytes -= e.getValue().size();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        epochs.values().forEach(AtomicLong::incrementAndGet);
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public double getHitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    /**
+     * Rough heap footprint of the document properties: 2 bytes per character, 16 bytes per scalar and per entry.
+     */
+    static long estimate(Document document) {
+        return 64 + estimate(document.toMap());
+    }
+
+    private static long estimate(Object value) {
+        if (value instanceof String string) {
+            return 40 + 2L * string.length();
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = 32;
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                size += 16 + estimate(e.getKey()) + estimate(e.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List<?> list) {
+            long size = 32;
+            for (Object item : list) {
+                size += 8 + estimate(item);
+            }
+            return size;
+        }
+        if (value instanceof Blob) {
+            return 128; // the content is loaded on demand, it isn't held by the document
+        }
+        return 16;
+    }
+
+    @Override
+    public void close() {
+        tokens.forEach(ListenerToken::remove);
+        tokens.clear();
+        invalidateAll();
+    }
+}
@@ -0,0 +1,86 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Collection;
+import com.couchbase.lite.ListenerToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the number of documents of every collection in memory. The counts are seeded once, then a collection change
+ * listener marks the collection as changed and its count is refreshed on the next read, so bursts of changes cost a
+ * single {@link Collection#getCount()} and reads without changes cost nothing.
+ * Optionally every collection is reconciled against {@link Collection#getCount()} on a fixed interval.
+ */
+@Slf4j
+public class DocumentCounter implements AutoCloseable {
+    private final Map<String, Collection> collections = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private final List<ListenerToken> tokens = new ArrayList<>();
+    private final ScheduledExecutorService reconciler;
+
+    public DocumentCounter(Set<Collection> collections, Duration reconcileInterval) {
+        collections.forEach(collection -> {
+            this.collections.put(collection.getName(), collection);
+            this.counts.put(collection.getName(), new AtomicLong(collection.getCount()));
+            this.tokens.add(collection.addChangeListener(change -> changed.add(collection.getName())));
+        });
+        if (reconcileInterval != null && !reconcileInterval.isZero() && !reconcileInterval.isNegative()) {
+            this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "document-counter");
+                t.setDaemon(true);
+                return t;
+            });
+            this.reconciler.scheduleWithFixedDelay(this::reconcile, reconcileInterval.toMillis(), reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.reconciler = null;
+        }
+    }
+
+    public long count(String collectionName) {
+        AtomicLong count = counts.get(collectionName);
+        if (count == null) {
+            return 0;
+        }
+        if (changed.remove(collectionName)) {
+            count.set(collections.get(collectionName).getCount());
+        }
+        return count.get();
+    }
+
+    public long count() {
+        return collections.keySet().stream().mapToLong(this::count).sum();
+    }
+
+    public Map<String, Long> counts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        collections.forEach((name, collection) -> result.put(collection.getFullName(), count(name)));
+        return result;
+    }
+
+    public void reconcile() {
+        collections.forEach((name, collection) -> {
+            long actual = collection.getCount();
+            long previous = counts.get(name).getAndSet(actual);
+            if (previous != actual && !changed.contains(name)) {
+                log.debug("Reconciled `{}` document count: {} -> {}", collection.getFullName(), previous, actual);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (reconciler != null) {
+            reconciler.shutdownNow();
+        }
+        tokens.forEach(ListenerToken::remove);
+        tokens.clear();
+    }
+}
@@ -0,0 +1,233 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.*;
+import com.couchbase.lite.Collection;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.ExpirationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the expiration policies of the collections. Every saved document, local or pulled, gets its expiration set
+ * from the collection change notifications, and Couchbase Lite purges it when it expires. A background sweep sets
+ * the expiration of documents written before the policy existed and purges the least recently updated documents of
+ * the collections above {@code max-documents}.
+ * Scheduled expirations, purged documents, the document count per collection and the database size are published as
+ * metrics, the counts and the size are refreshed by every sweep. Couchbase Lite purges expired documents on its own,
+ * so every sweep remembers the expiration of the documents due before the next one, and a remembered document gone
+ * after its expiration is counted as purged by its ttl. Documents gone before their expiration were deleted or purged
+ * for another reason and are forgotten without being counted.
+ */
+@Slf4j
+public class ExpirationSweeper implements AutoCloseable {
+    static final String WITHOUT_EXPIRATION = "SELECT meta().id as `_id` FROM %s WHERE meta().expiration IS NOT VALUED ORDER BY meta().sequence LIMIT $limit";
+    static final String LEAST_RECENTLY_UPDATED = "SELECT meta().id as `_id` FROM %s ORDER BY meta().sequence LIMIT $limit";
+    static final String EXPIRING = "SELECT meta().id as `_id`, meta().expiration as `expiration` FROM %s WHERE meta().expiration IS VALUED AND meta().expiration <= $until AND meta().id > $lastId ORDER BY meta().id LIMIT $limit";
+
+    private final Database database;
+    private final QueryCache queries;
+    private final QueryProfiler profiler;
+    private final int batchSize;
+    private final Map<Collection, ExpirationProperties> policies = new LinkedHashMap<>();
+    private final List<ListenerToken> tokens = new ArrayList<>();
+    private final ScheduledExecutorService executor;
+    private final MeterRegistry registry;
+    private final AtomicLong databaseSize = new AtomicLong();
+    private final Map<Collection, AtomicLong> documents = new HashMap<>();
+    // expiration in ms of the documents due before the next sweep, by id
+    private final Map<Collection, Map<String, Long>> expiring = new ConcurrentHashMap<>();
+    private final List<Meter> gauges = new ArrayList<>();
+    private final Duration sweepInterval;
+
+    public ExpirationSweeper(Database database, Set<Collection> collections, Map<String, ExpirationProperties> policies,
+                             Duration sweepInterval, QueryCache queries, QueryProfiler profiler, int batchSize, MeterRegistry registry) {
+        this.database = database;
+        this.queries = queries;
+        this.profiler = profiler;
+        this.batchSize = Math.max(1, batchSize);
+        this.registry = registry;
+        this.sweepInterval = sweepInterval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "expiration-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        collections.forEach(collection -> {
+            ExpirationProperties policy = policies.get(collection.getName());
+            if (policy == null) {
+                return;
+            }
+            this.policies.put(collection, policy);
+            if (policy.getTtl() != null && policy.getTtlSinceUpdate() != null) {
+                log.warn("Both ttl and ttl-since-update are set for {}, ttl-since-update is ignored", collection.getFullName());
+            }
+            if (policy.hasTtl()) {
+                tokens.add(collection.addChangeListener(executor, change -> change.getDocumentIDs().forEach(id -> expire(collection, policy, id))));
+            }
+            AtomicLong count = new AtomicLong();
+            documents.put(collection, count);
+            gauges.add(Gauge.builder("couchbase.collection.documents", count, AtomicLong::get).tag("collection", collection.getFullName()).register(registry));
+        });
+        gauges.add(Gauge.builder("couchbase.database.size", databaseSize, AtomicLong::get).baseUnit("bytes").register(registry));
+        this.executor.scheduleWithFixedDelay(this::sweep, 0, sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return whether the expiration was set
+     */
+    private boolean expire(Collection collection, ExpirationProperties policy, String id) {
+        try {
+            if (collection.getDocument(id) == null) {
+                gone(collection, id); // deleted or purged
+                return false;
+            }
+            Date expiration;
+            if (policy.getTtl() != null) {
+                if (collection.getDocumentExpiration(id) != null) {
+                    return false; // the ttl counts from the first write
+                }
+                expiration = new Date(System.currentTimeMillis() + policy.getTtl().toMillis());
+            } else {
+                expiration = new Date(System.currentTimeMillis() + policy.getTtlSinceUpdate().toMillis());
+            }
+            collection.setDocumentExpiration(id, expiration);
+            scheduled(collection, policy).increment();
+            return true;
+        } catch (CouchbaseLiteException e) {
+            log.debug("Cannot set the expiration of {} in {}: {}", id, collection.getFullName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void gone(Collection collection, String id) {
+        Long expiration = expiring.getOrDefault(collection, Map.of()).remove(id);
+        if (expiration != null && expiration <= System.currentTimeMillis()) {
+            purged(collection, "ttl").increment();
+        }
+    }
+
+    private Counter scheduled(Collection collection, ExpirationProperties policy) {
+        return Counter.builder("couchbase.expiration.scheduled")
+                .tag("collection", collection.getFullName())
+                .tag("policy", policy.getTtl() != null ? "ttl" : "ttl-since-update")
+                .register(registry);
+    }
+
+    /**
+     * Runs on the sweeper thread, it can also be called directly to sweep immediately.
+     */
+    public synchronized void sweep() {
+        policies.forEach((collection, policy) -> {
+            try {
+                if (policy.hasTtl()) {
+                    countExpired(collection);
+                    backfill(collection, policy);
+                }
+                if (policy.getMaxDocuments() > 0) {
+                    trim(collection, policy.getMaxDocuments());
+                }
+                documents.get(collection).set(collection.getCount());
+            } catch (CouchbaseLiteException | RuntimeException e) {
+                log.error("Error sweeping {}", collection.getFullName(), e);
+            }
+        });
+        databaseSize.set(MaintenanceScheduler.size(database));
+        log.debug("Database {} size: {} bytes", database.getName(), databaseSize.get());
+    }
+
+    private void backfill(Collection collection, ExpirationProperties policy) throws CouchbaseLiteException {
+        List<String> ids;
+        long expired;
+        do {
+            ids = ids(collection, "WITHOUT_EXPIRATION", WITHOUT_EXPIRATION, new Parameters().setInt("limit", batchSize));
+            expired = ids.stream().filter(id -> expire(collection, policy, id)).count();
+        } while (ids.size() == batchSize && expired > 0); // stop when the page can't be expired, it would be returned again
+    }
+
+    /**
+     * Counts the remembered documents gone after their expiration, in case their change wasn't notified, and remembers
+     * the ones due before the next sweep.
+     */
+    private void countExpired(Collection collection) throws CouchbaseLiteException {
+        Map<String, Long> due = expiring.getOrDefault(collection, Map.of());
+        for (String id : List.copyOf(due.keySet())) {
+            if (collection.getDocument(id) == null) {
+                gone(collection, id);
+            }
+        }
+        // twice the interval: the next sweep starts one interval after this one ends
+        long until = System.currentTimeMillis() + 2 * sweepInterval.toMillis();
+        Map<String, Long> next = new ConcurrentHashMap<>();
+        String lastId = "";
+        List<Result> page;
+        do {
+            page = queries.execute(collection, EXPIRING, new Parameters().setLong("until", until).setString("lastId", lastId).setInt("limit", batchSize),
+                    query -> profiler.execute("EXPIRING", query));
+            for (Result r : page) {
+                next.put(r.getString("_id"), r.getLong("expiration"));
+            }
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getString("_id");
+            }
+        } while (page.size() == batchSize);
+        expiring.put(collection, next);
+    }
+
+    /**
+     * Purges the excess documents one page of {@code batch-size} documents per transaction, so a large excess doesn't
+     * hold the database lock, nor the ids, all at once.
+     */
+    private void trim(Collection collection, long maxDocuments) throws CouchbaseLiteException {
+        long excess = collection.getCount() - maxDocuments;
+        long purged = 0;
+        while (purged < excess) {
+            List<String> ids = ids(collection, "LEAST_RECENTLY_UPDATED", LEAST_RECENTLY_UPDATED,
+                    new Parameters().setInt("limit", (int) Math.min(excess - purged, batchSize)));
+            if (ids.isEmpty()) {
+                break;
+            }
+            database.inBatch(() -> {
+                for (String id : ids) {
+                    collection.purge(id);
+                }
+            });
+            purged += ids.size();
+            purged(collection, "max-documents").increment(ids.size());
+            ids.forEach(expiring.getOrDefault(collection, new HashMap<>())::remove); // not to count them as expired too
+        }
+        if (purged > 0) {
+            log.info("Purged {} least recently updated documents from {} (max-documents: {})", purged, collection.getFullName(), maxDocuments);
+        }
+    }
+
+    private Counter purged(Collection collection, String policy) {
+        return Counter.builder("couchbase.expiration.purged")
+                .tag("collection", collection.getFullName())
+                .tag("policy", policy)
+                .register(registry);
+    }
+
+    private List<String> ids(Collection collection, String shape, String template, Parameters parameters) throws CouchbaseLiteException {
+        List<Result> results = queries.execute(collection, template, parameters, query -> profiler.execute(shape, query));
+        return results.stream().map(r -> r.getString("_id")).toList();
+    }
+
+    @Override
+    public void close() {
+        tokens.forEach(ListenerToken::remove);
+        tokens.clear();
+        executor.shutdownNow();
+        gauges.forEach(registry::remove);
+        gauges.clear();
+    }
+}
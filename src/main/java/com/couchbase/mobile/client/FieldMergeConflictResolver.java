@@ -0,0 +1,139 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Conflict;
+import com.couchbase.lite.ConflictResolver;
+import com.couchbase.lite.Document;
+import com.couchbase.lite.MutableDocument;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.ConflictResolverProperties;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.ConflictStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves replication conflicts of a collection with the configured strategy:
+ * <ul>
+ *     <li>{@code LAST_WRITER_WINS} keeps the revision with the highest {@code timestamp-field}, the remote one on
+ *     ties</li>
+ *     <li>{@code MERGE} starts from the newest revision and adds the fields only present in the other one, so edits
+ *     of different fields made on different devices are all kept</li>
+ * </ul>
+ * A conflict with a deletion is always resolved as a deletion, like the default resolver does.
+ * With {@code MERGE}, each counter field holds a map of per-device counts ({@code {"device1": 3, "device2": 5}},
+ * whose value is the sum of the counts) and every device only increments its own entry. Conflicts keep the highest
+ * count of every device, so concurrent increments are never lost nor counted twice. The common ancestor of the
+ * revisions isn't available to the resolver, so plain numbers can't be summed safely.
+ */
+public class FieldMergeConflictResolver implements ConflictResolver {
+    private final ConflictStrategy strategy;
+    private final String timestampField;
+    private final Set<String> counterFields;
+    private final Timer resolution;
+    private final Map<String, Counter> outcomes = new HashMap<>();
+
+    public FieldMergeConflictResolver(String collection, ConflictResolverProperties properties, MeterRegistry registry) {
+        this.strategy = properties.getStrategy();
+        this.timestampField = properties.getTimestampField();
+        this.counterFields = Set.copyOf(properties.getCounterFields());
+        this.resolution = Timer.builder("couchbase.replication.conflicts.resolution")
+                .tag("collection", collection)
+                .tag("strategy", strategy.name())
+                .register(registry);
+        for (String outcome : List.of("local", "remote", "merged", "deleted")) {
+            outcomes.put(outcome, Counter.builder("couchbase.replication.conflicts")
+                    .tag("collection", collection)
+                    .tag("strategy", strategy.name())
+                    .tag("outcome", outcome)
+                    .register(registry));
+        }
+    }
+
+    /**
+     * @return the resolver of the configured strategy, null to keep the Couchbase Lite default resolver
+     */
+    public static ConflictResolver of(String collection, ConflictResolverProperties properties, MeterRegistry registry) {
+        return properties == null || properties.getStrategy() == ConflictStrategy.DEFAULT ? null
+                : new FieldMergeConflictResolver(collection, properties, registry);
+    }
+
+    @Override
+    public Document resolve(Conflict conflict) {
+        return resolve(conflict.getDocumentId(), conflict.getLocalDocument(), conflict.getRemoteDocument());
+    }
+
+    /**
+     * @param local  local revision, null when deleted locally
+     * @param remote remote revision, null when deleted remotely
+     * @return the winning revision, null to delete the document
+     */
+    public Document resolve(String id, Document local, Document remote) {
+        long start = System.nanoTime();
+        try {
+            if (local == null || remote == null) {
+                outcomes.get("deleted").increment();
+                return null;
+            }
+            boolean localNewer = timestamp(local) > timestamp(remote);
+            if (strategy == ConflictStrategy.LAST_WRITER_WINS) {
+                outcomes.get(localNewer ? "local" : "remote").increment();
+                return localNewer ? local : remote;
+            }
+            outcomes.get("merged").increment();
+            return merge(id, localNewer ? local : remote, localNewer ? remote : local);
+        } finally {
+            resolution.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Document merge(String id, Document newer, Document older) {
+        Map<String, Object> merged = new HashMap<>(older.toMap());
+        merged.putAll(newer.toMap());
+        for (String field : counterFields) {
+            Map<String, Object> counts = mergeCounts(newer.getValue(field), older.getValue(field));
+            if (counts != null) {
+                merged.put(field, counts);
+            }
+        }
+        return new MutableDocument(id, merged);
+    }
+
+    private static Map<String, Object> mergeCounts(Object newer, Object older) {
+        Map<String, Object> newerCounts = counts(newer);
+        Map<String, Object> olderCounts = counts(older);
+        if (newerCounts == null || olderCounts == null) {
+            return newerCounts != null ? newerCounts : olderCounts;
+        }
+        Map<String, Object> merged = new HashMap<>(olderCounts);
+        newerCounts.forEach((device, count) -> merged.merge(device, count, (a, b) ->
+                Math.max(((Number) a).longValue(), ((Number) b).longValue())));
+        return merged;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> counts(Object value) {
+        if (value instanceof com.couchbase.lite.Dictionary dictionary) {
+            return dictionary.toMap();
+        }
+        return value instanceof Map<?, ?> map ? (Map<String, Object>) map : null;
+    }
+
+    private long timestamp(Document document) {
+        Object value = document.getValue(timestampField);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        Date date = document.getDate(timestampField);
+        return date == null ? Long.MIN_VALUE : date.getTime();
+    }
+
+    /**
+     * @return the value of a per-device counter field
+     */
+    public static long counterValue(Document document, String field) {
+        Map<String, Object> counts = counts(document.getValue(field));
+        return counts == null ? 0 : counts.values().stream().mapToLong(v -> ((Number) v).longValue()).sum();
+    }
+}
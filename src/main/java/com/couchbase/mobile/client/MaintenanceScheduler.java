@@ -0,0 +1,165 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.*;
+import com.couchbase.lite.Collection;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.MaintenanceProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Runs {@link Database#performMaintenance(MaintenanceType)} in the background when the thresholds are reached:
+ * COMPACT when the database files grew by {@code compact-after-growth} since the last compaction, otherwise REINDEX,
+ * FULL_OPTIMIZE or OPTIMIZE depending on the documents written since they last ran. Maintenance is deferred while any
+ * replicator is connecting or busy, so it never competes with a replication burst, and runs never overlap.
+ */
+@Slf4j
+public class MaintenanceScheduler implements AutoCloseable {
+    private static final Set<ReplicatorActivityLevel> QUIET = EnumSet.of(ReplicatorActivityLevel.IDLE,
+            ReplicatorActivityLevel.STOPPED, ReplicatorActivityLevel.OFFLINE);
+
+    private final Database database;
+    private final MaintenanceProperties properties;
+    private final Supplier<ReplicatorActivityLevel> activityLevel;
+    // operations driven by the writes, each one also covers the ones after it
+    private static final List<MaintenanceType> BY_WRITES = List.of(MaintenanceType.REINDEX, MaintenanceType.FULL_OPTIMIZE, MaintenanceType.OPTIMIZE);
+
+    private final AtomicLong writes = new AtomicLong();
+    private final Map<MaintenanceType, Long> writesAtLastRun = new EnumMap<>(MaintenanceType.class);
+    private final List<ListenerToken> tokens = new ArrayList<>();
+    private final ScheduledExecutorService executor;
+    private final MeterRegistry registry;
+    private final Counter reclaimed;
+    private final Counter deferred;
+    private long compactedSize;
+
+    public MaintenanceScheduler(Database database, Set<Collection> collections, MaintenanceProperties properties,
+                                Supplier<ReplicatorActivityLevel> activityLevel, MeterRegistry registry) {
+        this.database = database;
+        this.properties = properties;
+        this.activityLevel = activityLevel;
+        this.registry = registry;
+        this.reclaimed = Counter.builder("couchbase.maintenance.reclaimed").baseUnit("bytes").register(registry);
+        this.deferred = Counter.builder("couchbase.maintenance.deferred").register(registry);
+        this.compactedSize = size(database);
+        collections.forEach(collection -> tokens.add(collection.addChangeListener(change -> writes.addAndGet(change.getDocumentIDs().size()))));
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "database-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = properties.getCheckInterval().toMillis();
+        this.executor.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the maintenance due by the thresholds, null when none is
+     */
+    synchronized MaintenanceType due() {
+        long currentSize = size(database);
+        if (properties.getCompactAfterGrowth() > 0 && compactedSize > 0
+                && currentSize - compactedSize >= compactedSize * properties.getCompactAfterGrowth()) {
+            return MaintenanceType.COMPACT;
+        }
+        for (MaintenanceType type : BY_WRITES) {
+            long threshold = threshold(type);
+            if (threshold > 0 && writesSince(type) >= threshold) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private long threshold(MaintenanceType type) {
+        return switch (type) {
+            case REINDEX -> properties.getReindexAfterWrites();
+            case FULL_OPTIMIZE -> properties.getFullOptimizeAfterWrites();
+            case OPTIMIZE -> properties.getOptimizeAfterWrites();
+            default -> 0;
+        };
+    }
+
+    private long writesSince(MaintenanceType type) {
+        return writes.get() - writesAtLastRun.getOrDefault(type, 0L);
+    }
+
+    private void check() {
+        try {
+            MaintenanceType type = due();
+            if (type == null) {
+                return;
+            }
+            ReplicatorActivityLevel level = activityLevel.get();
+            if (!QUIET.contains(level)) {
+                deferred.increment();
+                log.debug("{} deferred, replication is {}", type, level);
+                return;
+            }
+            run(type);
+        } catch (RuntimeException e) {
+            log.error("Error checking the database maintenance", e);
+        }
+    }
+
+    /**
+     * Runs the maintenance on the calling thread, regardless of the thresholds and the replication activity.
+     */
+    public synchronized void run(MaintenanceType type) {
+        long before = size(database);
+        long written = writesSince(type);
+        long total = writes.get();
+        long start = System.nanoTime();
+        try {
+            database.performMaintenance(type);
+        } catch (CouchbaseLiteException e) {
+            log.error("Database maintenance {} failed", type, e);
+            return;
+        }
+        if (BY_WRITES.contains(type)) {
+            BY_WRITES.subList(BY_WRITES.indexOf(type), BY_WRITES.size()).forEach(covered -> writesAtLastRun.put(covered, total));
+        }
+        long elapsed = System.nanoTime() - start;
+        long after = size(database);
+        Timer.builder("couchbase.maintenance").tag("type", type.name()).register(registry).record(elapsed, TimeUnit.NANOSECONDS);
+        if (before > after) {
+            reclaimed.increment(before - after);
+        }
+        if (type == MaintenanceType.COMPACT) {
+            compactedSize = after;
+        }
+        log.info("Database maintenance {} after {} writes took {} ms, {} bytes reclaimed ({} -> {} bytes)", type, written,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), Math.max(0, before - after), before, after);
+    }
+
+    /**
+     * @return size in bytes of the files of the database
+     */
+    static long size(Database database) {
+        Path path = Path.of(database.getPath());
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        } catch (IOException | RuntimeException e) {
+            log.debug("Cannot compute the size of {}: {}", path, e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        tokens.forEach(ListenerToken::remove);
+        tokens.clear();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,68 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.*;
+import com.couchbase.lite.Collection;
+
+import java.util.*;
+
+/**
+ * Walks a collection ordered by document id using keyset pagination: every page is fetched with
+ * {@code meta().id > $lastId LIMIT $limit} and its {@link ResultSet} is closed before the next one is requested, so
+ * at most one page of results is held in memory. A failed page query fails the iteration with an
+ * {@link IllegalStateException}.
+ */
+public class PagedQueryIterator implements Iterator<Result> {
+    static final String FIND_PAGE = "SELECT meta().id as `_id`, * FROM %s WHERE meta().id > $lastId ORDER BY meta().id LIMIT $limit";
+
+    private final QueryCache queries;
+    private final QueryProfiler profiler;
+    private final Collection collection;
+    private final int pageSize;
+    private Iterator<Result> page = Collections.emptyIterator();
+    private String lastId = "";
+    private boolean exhausted = false;
+
+    public PagedQueryIterator(QueryCache queries, QueryProfiler profiler, Collection collection, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page size must be greater than 0: " + pageSize);
+        }
+        this.queries = queries;
+        this.profiler = profiler;
+        this.collection = collection;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!page.hasNext() && !exhausted) {
+            page = nextPage().iterator();
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public Result next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /**
+     * @throws IllegalStateException when the page query fails, so the iteration never ends early with partial results
+     */
+    private List<Result> nextPage() {
+        List<Result> results;
+        try {
+            results = queries.execute(collection, FIND_PAGE, new Parameters().setString("lastId", lastId).setInt("limit", pageSize),
+                    query -> profiler.execute("FIND_PAGE", query));
+        } catch (CouchbaseLiteException e) {
+            throw new IllegalStateException("Error listing documents of `%s` after '%s'".formatted(collection.getFullName(), lastId), e);
+        }
+        exhausted = results.size() < pageSize;
+        if (!results.isEmpty()) {
+            lastId = results.get(results.size() - 1).getString("_id");
+        }
+        return results;
+    }
+}
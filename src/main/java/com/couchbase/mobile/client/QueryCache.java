@@ -0,0 +1,120 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Collection;
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Database;
+import com.couchbase.lite.Parameters;
+import com.couchbase.lite.Query;
+import com.couchbase.lite.Result;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bounded LRU cache of compiled queries keyed by collection and query template, so a query is parsed and compiled
+ * once and re-executed with new {@link Parameters}. A compiled query is borrowed by one execution at a time, so
+ * concurrent executions of the same template use their own instances instead of waiting for each other.
+ * Entries of a collection are invalidated when its indexes change through {@link ClientLite#createIndex} or
+ * {@link ClientLite#deleteIndex}; indexes changed directly on the database must be followed by an explicit
+ * {@link #invalidate(String)}, otherwise the cached queries keep their previous plans. Statements not bound to a
+ * collection are invalidated together with any collection.
+ */
+@Slf4j
+public class QueryCache {
+    // idle compiled instances kept per template, more concurrent executions compile their own
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+    private record Key(String collection, String template) {
+    }
+
+    private static class Entry {
+        final Queue<Query> idle = new ConcurrentLinkedQueue<>();
+    }
+
+    @FunctionalInterface
+    public interface Execution {
+        List<Result> execute(Query query) throws CouchbaseLiteException;
+    }
+
+    private final Database database;
+    private final int maxSize;
+    private final Map<Key, Entry> queries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public QueryCache(Database database, int maxSize, MeterRegistry registry) {
+        this.database = database;
+        this.maxSize = maxSize;
+        this.queries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                boolean evict = size() > QueryCache.this.maxSize;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+        this.hits = Counter.builder("couchbase.query.cache").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("couchbase.query.cache").tag("result", "miss").register(registry);
+        this.evictions = Counter.builder("couchbase.query.cache.evictions").register(registry);
+        Gauge.builder("couchbase.query.cache.size", this, QueryCache::size).register(registry);
+    }
+
+    /**
+     * Sets the parameters of a compiled instance of the query and executes it.
+     *
+     * @param collection collection the template is formatted with, null for plain statements
+     * @param template   query template, formatted with the collection full name when given
+     * @param execution  executes the query, the results must be consumed before returning
+     */
+    public List<Result> execute(Collection collection, String template, Parameters parameters, Execution execution) throws CouchbaseLiteException {
+        String name = collection == null ? null : collection.getFullName();
+        if (maxSize <= 0) {
+            Query query = create(name, template);
+            query.setParameters(parameters);
+            return execution.execute(query);
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = queries.computeIfAbsent(new Key(name, template), k -> new Entry());
+        }
+        Query query = entry.idle.poll();
+        if (query != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            query = create(name, template);
+        }
+        try {
+            query.setParameters(parameters);
+            return execution.execute(query);
+        } finally {
+            // an instance of an invalidated entry isn't reachable anymore and is dropped
+            if (entry.idle.size() < MAX_IDLE) {
+                entry.idle.offer(query);
+            }
+        }
+    }
+
+    public synchronized void invalidate(String collection) {
+        queries.keySet().removeIf(key -> key.collection() == null || Objects.equals(key.collection(), collection));
+    }
+
+    public synchronized void invalidateAll() {
+        queries.clear();
+    }
+
+    public synchronized int size() {
+        return queries.size();
+    }
+
+    private Query create(String collection, String template) throws CouchbaseLiteException {
+        return database.createQuery(collection == null ? template : template.formatted(collection));
+    }
+}
@@ -0,0 +1,55 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Query;
+import com.couchbase.lite.Result;
+import com.couchbase.lite.ResultSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every query executed by {@link ClientLite} into the {@code couchbase.query} histogram, tagged by query shape
+ * (the template the query was built from, not its parameters). Queries slower than {@code slow-threshold} are
+ * logged with their row count and the plan returned by {@link Query#explain()}.
+ */
+@Slf4j
+public class QueryProfiler {
+    private final MeterRegistry registry;
+    private final Duration slowThreshold;
+
+    public QueryProfiler(MeterRegistry registry, Duration slowThreshold) {
+        this.registry = registry;
+        this.slowThreshold = slowThreshold;
+    }
+
+    public List<Result> execute(String shape, Query query) throws CouchbaseLiteException {
+        long start = System.nanoTime();
+        List<Result> results;
+        try (ResultSet rs = query.execute()) {
+            results = rs.allResults();
+        }
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("couchbase.query")
+                .tag("shape", shape)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (slowThreshold != null && elapsed > slowThreshold.toNanos()) {
+            log.warn("Slow query [{}]: {} ms, {} rows. Plan:\n{}", shape, TimeUnit.NANOSECONDS.toMillis(elapsed), results.size(), explain(query));
+        }
+        return results;
+    }
+
+    private String explain(Query query) {
+        try {
+            return query.explain();
+        } catch (CouchbaseLiteException e) {
+            return "explain failed: " + e.getMessage();
+        }
+    }
+}
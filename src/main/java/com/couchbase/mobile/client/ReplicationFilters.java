@@ -0,0 +1,79 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Document;
+import com.couchbase.lite.DocumentFlag;
+import com.couchbase.lite.ReplicationFilter;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.FilterProperties;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.PredicateProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Compiles the declarative {@code push-filter}/{@code pull-filter} of a collection into a {@link ReplicationFilter}.
+ * Predicates are built once, so the filter evaluated for every replicated document only reads the document
+ * properties. Documents whose access was removed are always accepted, so the filter never keeps a revoked document
+ * in the local database. Documents are counted in {@code couchbase.replication.filter} as sent or filtered.
+ */
+public final class ReplicationFilters {
+
+    private ReplicationFilters() {
+    }
+
+    public static ReplicationFilter compile(String collection, String direction, FilterProperties filter, MeterRegistry registry) {
+        Predicate<Document> predicate = document -> true;
+        for (PredicateProperties p : filter.getPredicates()) {
+            predicate = predicate.and(compile(p));
+        }
+        List<String> excludedPrefixes = List.copyOf(filter.getExcludedIdPrefixes());
+        boolean deletions = filter.isDeletions();
+        Predicate<Document> properties = predicate;
+        Counter sent = counter(registry, collection, direction, "sent");
+        Counter filtered = counter(registry, collection, direction, "filtered");
+        return (document, flags) -> {
+            boolean replicate;
+            if (flags.contains(DocumentFlag.ACCESS_REMOVED)) {
+                replicate = true; // the revocation must reach the local database so the document is purged
+            } else if (excludedPrefixes.stream().anyMatch(document.getId()::startsWith)) {
+                replicate = false;
+            } else if (flags.contains(DocumentFlag.DELETED)) {
+                replicate = deletions;
+            } else {
+                replicate = properties.test(document);
+            }
+            (replicate ? sent : filtered).increment();
+            return replicate;
+        };
+    }
+
+    private static Predicate<Document> compile(PredicateProperties p) {
+        String property = p.getProperty();
+        Set<String> values = new HashSet<>(p.getValues());
+        String value = p.getValues().isEmpty() ? null : p.getValues().get(0);
+        return switch (p.getOperator()) {
+            case EQUALS -> document -> value != null && value.equals(stringValue(document, property));
+            case NOT_EQUALS -> document -> value == null || !value.equals(stringValue(document, property));
+            case IN -> document -> values.contains(stringValue(document, property));
+            case NOT_IN -> document -> !values.contains(stringValue(document, property));
+            case EXISTS -> document -> document.contains(property);
+            case MISSING -> document -> !document.contains(property);
+        };
+    }
+
+    private static String stringValue(Document document, String property) {
+        Object value = document.getValue(property);
+        return value == null ? null : String.valueOf(value);
+    }
+
+    private static Counter counter(MeterRegistry registry, String collection, String direction, String outcome) {
+        return Counter.builder("couchbase.replication.filter")
+                .tag("collection", collection)
+                .tag("direction", direction)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,64 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Replicator;
+import com.couchbase.lite.ReplicatorActivityLevel;
+import com.couchbase.lite.ReplicatorChange;
+import com.couchbase.lite.ReplicatorChangeListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Completes futures when the aggregated activity level of the shard replicators changes to an expected level, driven
+ * by the replicator change notifications instead of polling the status.
+ */
+public class ReplicationStateWatcher implements ReplicatorChangeListener {
+    private final Map<Replicator, ReplicatorActivityLevel> levels = new ConcurrentHashMap<>();
+    private final Map<CompletableFuture<ReplicatorActivityLevel>, Predicate<ReplicatorActivityLevel>> waiters = new ConcurrentHashMap<>();
+
+    public ReplicationStateWatcher(java.util.Collection<Replicator> replicators) {
+        replicators.forEach(replicator -> {
+            levels.put(replicator, replicator.getStatus().getActivityLevel());
+            replicator.addChangeListener(this);
+        });
+    }
+
+    /**
+     * The replicators are being started: the stopped ones count as CONNECTING until they notify their first change,
+     * so a shard that reports early doesn't make the aggregated level look quiet while the others haven't started.
+     */
+    public void onStart() {
+        levels.replaceAll((replicator, level) -> level == ReplicatorActivityLevel.STOPPED
+                && replicator.getStatus().getActivityLevel() == ReplicatorActivityLevel.STOPPED ? ReplicatorActivityLevel.CONNECTING : level);
+    }
+
+    public ReplicatorActivityLevel getActivityLevel() {
+        return ClientLite.aggregate(levels.values());
+    }
+
+    /**
+     * @return a future completed with the aggregated level on the next change matching {@code condition}, or
+     * completed exceptionally with a {@link java.util.concurrent.TimeoutException} after {@code timeout}
+     */
+    public CompletableFuture<ReplicatorActivityLevel> awaitNext(Predicate<ReplicatorActivityLevel> condition, Duration timeout) {
+        CompletableFuture<ReplicatorActivityLevel> future = new CompletableFuture<>();
+        waiters.put(future, condition);
+        future.whenComplete((level, error) -> waiters.remove(future));
+        return future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void changed(ReplicatorChange change) {
+        levels.put(change.getReplicator(), change.getStatus().getActivityLevel());
+        ReplicatorActivityLevel level = getActivityLevel();
+        waiters.forEach((future, condition) -> {
+            if (condition.test(level)) {
+                future.complete(level);
+            }
+        });
+    }
+}
@@ -0,0 +1,149 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.*;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.RetryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static com.couchbase.lite.ReplicatorActivityLevel.*;
+
+/**
+ * Restarts a replicator that stopped without being asked to, waiting a jittered exponential backoff between attempts
+ * up to {@code max-attempts}. Errors that a restart can't fix (authentication, authorization, unknown database) stop
+ * the supervision. Restarts never reset the checkpoint, so the replicator resumes where it stopped.
+ * The time from the unexpected stop until the replicator is active again is recorded as
+ * {@code couchbase.replication.recovery}.
+ */
+@Slf4j
+public class ReplicationSupervisor implements ReplicatorChangeListener, AutoCloseable {
+    private static final String DOMAIN = "CouchbaseLite";
+    private static final int HTTP_BASE = 10000;
+    private static final int WEB_SOCKET_POLICY_ERROR = 11008;
+    private static final Set<Integer> FATAL_HTTP_STATUS = Set.of(401, 403, 404, 410);
+
+    private final Replicator replicator;
+    private final RetryProperties retry;
+    private final MeterRegistry registry;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "replication-supervisor");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean supervising = false;
+    private int attempts = 0;
+    private long stoppedAt = 0;
+    private ScheduledFuture<?> pendingRestart;
+
+    public ReplicationSupervisor(Replicator replicator, RetryProperties retry, MeterRegistry registry) {
+        this.replicator = replicator;
+        this.retry = retry;
+        this.registry = registry;
+    }
+
+    /**
+     * The replicator has been started on purpose, from now on unexpected stops are restarted.
+     */
+    public synchronized void onStart() {
+        cancelPendingRestart();
+        supervising = retry.isEnabled();
+        attempts = 0;
+        stoppedAt = 0; // a manual start isn't the recovery of a previous unexpected stop
+    }
+
+    /**
+     * The replicator has been stopped on purpose, it mustn't be restarted.
+     */
+    public synchronized void onStop() {
+        cancelPendingRestart();
+        supervising = false;
+        stoppedAt = 0;
+    }
+
+    @Override
+    public synchronized void changed(ReplicatorChange change) {
+        ReplicatorStatus status = change.getStatus();
+        ReplicatorActivityLevel level = status.getActivityLevel();
+        if (level == STOPPED && supervising) {
+            CouchbaseLiteException error = status.getError();
+            if (error == null && !replicator.getConfig().isContinuous()) {
+                supervising = false; // one-shot replication completed
+            } else if (error != null && isFatal(error)) {
+                log.error("Replication stopped with a non recoverable error ({}/{}): {}", error.getDomain(), error.getCode(), error.getMessage());
+                counter("fatal").increment();
+                supervising = false;
+            } else {
+                if (stoppedAt == 0) {
+                    stoppedAt = System.nanoTime();
+                }
+                scheduleRestart();
+            }
+        } else if ((level == IDLE || level == BUSY) && stoppedAt != 0) {
+            long recovery = System.nanoTime() - stoppedAt;
+            Timer.builder("couchbase.replication.recovery").register(registry).record(recovery, TimeUnit.NANOSECONDS);
+            log.info("Replication recovered after {} ms and {} attempt(s)", TimeUnit.NANOSECONDS.toMillis(recovery), attempts);
+            counter("recovered").increment();
+            stoppedAt = 0;
+            attempts = 0;
+        }
+    }
+
+    static boolean isFatal(CouchbaseLiteException error) {
+        if (!DOMAIN.equals(error.getDomain())) {
+            return false; // network & posix errors are transient
+        }
+        int code = error.getCode();
+        return code == WEB_SOCKET_POLICY_ERROR || (code > HTTP_BASE && code < HTTP_BASE + 600 && FATAL_HTTP_STATUS.contains(code - HTTP_BASE));
+    }
+
+    Duration backoff(int attempt) {
+        double delay = retry.getInitialDelay().toMillis() * Math.pow(retry.getMultiplier(), attempt - 1);
+        delay = Math.min(delay, retry.getMaxDelay().toMillis());
+        delay -= delay * retry.getJitter() * ThreadLocalRandom.current().nextDouble();
+        return Duration.ofMillis((long) delay);
+    }
+
+    private void scheduleRestart() {
+        if (pendingRestart != null && !pendingRestart.isDone()) {
+            return;
+        }
+        if (attempts >= retry.getMaxAttempts()) {
+            log.error("Replication stopped unexpectedly and it couldn't be restarted after {} attempts", attempts);
+            counter("exhausted").increment();
+            supervising = false;
+            return;
+        }
+        Duration delay = backoff(++attempts);
+        log.warn("Replication stopped unexpectedly, restarting in {} ms (attempt {}/{})", delay.toMillis(), attempts, retry.getMaxAttempts());
+        pendingRestart = scheduler.schedule(this::restart, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void restart() {
+        if (supervising && !replicator.isClosed()) {
+            counter("restarted").increment();
+            replicator.start(false); // keep the checkpoint, only the delta is replicated again
+        }
+    }
+
+    private Counter counter(String outcome) {
+        return Counter.builder("couchbase.replication.restarts").tag("outcome", outcome).register(registry);
+    }
+
+    private void cancelPendingRestart() {
+        if (pendingRestart != null) {
+            pendingRestart.cancel(false);
+            pendingRestart = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        onStop();
+        scheduler.shutdownNow();
+    }
+}
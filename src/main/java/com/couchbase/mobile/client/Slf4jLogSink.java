@@ -0,0 +1,221 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.LogLevel;
+import com.couchbase.lite.logging.BaseLogSink;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.Slf4jLogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Forwards Couchbase Lite logs to SLF4J without doing the logging on the database and replicator threads: records are
+ * filtered by the level of their domain and pushed into a bounded lock-free ring buffer, and a background thread
+ * drains it into the {@code CouchbaseLite.<DOMAIN>} loggers, parking while the buffer is empty. Records are dropped
+ * (and counted) when the buffer is full. DEBUG, the most detailed Couchbase Lite level, is logged as TRACE and VERBOSE
+ * as DEBUG.
+ * Identical messages, ignoring numbers, are logged {@code sample-burst} times per {@code sample-window} and the rest
+ * are only counted and summarized in a single line by the first occurrence after the window.
+ */
+public class Slf4jLogSink extends BaseLogSink implements AutoCloseable {
+    // the drain thread is unparked by the producers, the timeout only bounds a missed wake-up
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private record LogRecord(LogLevel level, LogDomain domain, String message) {}
+
+    private static class Sample {
+        long windowStart;
+        int count;
+    }
+
+    private final Map<LogDomain, LogLevel> levels = new EnumMap<>(LogDomain.class);
+    private final Map<LogDomain, Logger> loggers = new EnumMap<>(LogDomain.class);
+    private final RingBuffer buffer;
+    private final Map<String, Sample> samples = new HashMap<>();
+    private final int sampleBurst;
+    private final long sampleWindow;
+    private final Counter dropped;
+    private final Counter sampled;
+    private final Thread drainer;
+    private volatile boolean running = true;
+    private volatile boolean waiting = false;
+
+    public Slf4jLogSink(Slf4jLogProperties properties, MeterRegistry registry) {
+        super(lowest(properties));
+        for (LogDomain domain : LogDomain.values()) {
+            levels.put(domain, properties.getDomains().getOrDefault(domain, properties.getLevel()));
+            loggers.put(domain, LoggerFactory.getLogger("CouchbaseLite." + domain.name()));
+        }
+        this.buffer = new RingBuffer(properties.getBufferSize());
+        this.sampleBurst = properties.getSampleBurst();
+        this.sampleWindow = properties.getSampleWindow().toNanos();
+        this.dropped = Counter.builder("couchbase.log.dropped").register(registry);
+        this.sampled = Counter.builder("couchbase.log.sampled").register(registry);
+        this.drainer = new Thread(this::drain, "cbl-log-sink");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * The sink level is the lowest one of the domains, so no domain misses records it should log.
+     */
+    private static LogLevel lowest(Slf4jLogProperties properties) {
+        LogLevel lowest = properties.getLevel();
+        for (LogLevel level : properties.getDomains().values()) {
+            if (level.compareTo(lowest) < 0) {
+                lowest = level;
+            }
+        }
+        return lowest;
+    }
+
+    @Override
+    public void writeLog(LogLevel level, LogDomain domain, String message) {
+        if (level.compareTo(levels.get(domain)) < 0) {
+            return;
+        }
+        if (!buffer.offer(new LogRecord(level, domain, message))) {
+            dropped.increment();
+        } else if (waiting) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    public long getDropped() {
+        return (long) dropped.count();
+    }
+
+    private void drain() {
+        while (running || !buffer.isEmpty()) {
+            LogRecord record = buffer.poll();
+            if (record != null) {
+                log(record);
+                continue;
+            }
+            // waiting is set before checking the buffer, so a record offered meanwhile unparks the thread
+            waiting = true;
+            if (running && buffer.isEmpty()) {
+                LockSupport.parkNanos(this, MAX_WAIT_NANOS);
+            }
+            waiting = false;
+        }
+    }
+
+    private void log(LogRecord record) {
+        String key = record.domain() + ":" + record.message().replaceAll("\\d+", "#");
+        long now = System.nanoTime();
+        Sample sample = samples.computeIfAbsent(key, k -> new Sample());
+        if (sample.count > 0 && now - sample.windowStart > sampleWindow) {
+            if (sample.count > sampleBurst) {
+                write(record.level(), record.domain(), "Previous message repeated %d more times in %d s: %s".formatted(
+                        sample.count - sampleBurst, TimeUnit.NANOSECONDS.toSeconds(sampleWindow), record.message()));
+            }
+            sample.count = 0;
+        }
+        if (sample.count == 0) {
+            sample.windowStart = now;
+            if (samples.size() > 10_000) {
+                // bound the sampling state, unique messages are the common case
+                samples.clear();
+                samples.put(key, sample);
+            }
+        }
+        if (++sample.count <= sampleBurst) {
+            write(record.level(), record.domain(), record.message());
+        } else {
+            sampled.increment();
+        }
+    }
+
+    private void write(LogLevel level, LogDomain domain, String message) {
+        Logger logger = loggers.get(domain);
+        switch (level) {
+            case DEBUG -> logger.trace(message);
+            case VERBOSE -> logger.debug(message);
+            case INFO -> logger.info(message);
+            case WARNING -> logger.warn(message);
+            case ERROR -> logger.error(message);
+            default -> { }
+        }
+    }
+
+    /**
+     * Stops the drain thread once the pending records are logged.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bounded multi-producer single-consumer queue: producers claim a slot with a CAS on the tail and publish the
+     * record through the slot sequence, so offering never blocks and never allocates.
+     */
+    private static class RingBuffer {
+        private final int mask;
+        private final AtomicReferenceArray<LogRecord> slots;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head = 0;
+
+        RingBuffer(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.mask = size - 1;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(LogRecord record) {
+            while (true) {
+                long position = tail.get();
+                int index = (int) (position & mask);
+                long available = sequences.get(index) - position;
+                if (available == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots.set(index, record);
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                } else if (available < 0) {
+                    return false;
+                }
+            }
+        }
+
+        LogRecord poll() {
+            long position = head;
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                return null;
+            }
+            LogRecord record = slots.get(index);
+            slots.set(index, null);
+            sequences.set(index, position + mask + 1);
+            head = position + 1;
+            return record;
+        }
+
+        boolean isEmpty() {
+            return tail.get() == head;
+        }
+    }
+}
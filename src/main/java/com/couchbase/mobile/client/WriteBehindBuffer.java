@@ -0,0 +1,267 @@
+package com.couchbase.mobile.client;
+
+import com.couchbase.lite.Collection;
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.Database;
+import com.couchbase.lite.Document;
+import com.couchbase.lite.MutableDocument;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.WriteBehindProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Buffers document writes and saves them every {@code window} in a single {@link Database#inBatch} transaction. All
+ * the writes of a document within a window are applied in order to one revision, so a document updated many times
+ * per second creates, and pushes, one revision per window. When {@code max-pending} documents are buffered, the writer
+ * of another document flushes the buffer on its own thread, so the buffer stays bounded and the writers are slowed
+ * down to the pace of the database. The writes of a failed transaction, or of a document that failed to save, are
+ * merged back in front of the newer writes and retried by the next flushes, up to {@value #MAX_ATTEMPTS} times, then
+ * dropped and counted in {@code couchbase.writebehind.failures}. Buffered writes aren't visible to reads until they
+ * are flushed, and they are flushed by {@link #close()}, after which writes are rejected.
+ */
+@Slf4j
+public class WriteBehindBuffer implements AutoCloseable {
+    static final int MAX_ATTEMPTS = 3;
+
+    private record Key(String collection, String id) {}
+
+    private static class Pending {
+        final Collection collection;
+        MutableDocument replacement;
+        final List<Consumer<MutableDocument>> mutations = new ArrayList<>();
+        int writes;
+        int attempts;
+
+        Pending(Collection collection) {
+            this.collection = collection;
+        }
+
+        /**
+         * Appends the writes buffered after this pending ones.
+         */
+        void merge(Pending newer) {
+            if (newer.replacement != null) {
+                replacement = newer.replacement;
+                mutations.clear();
+            }
+            mutations.addAll(newer.mutations);
+            writes += newer.writes;
+        }
+    }
+
+    private final Database database;
+    private final WriteBehindProperties properties;
+    private final ScheduledExecutorService executor;
+    private final Object flushLock = new Object();
+    private Map<Key, Pending> pending = new LinkedHashMap<>();
+    private boolean closed = false;
+    private final Counter writes;
+    private final Counter absorbed;
+    private final Counter failures;
+    private final Timer flushes;
+    private final AtomicLong absorbedCount = new AtomicLong();
+    private final BiConsumer<Collection, String> flushed;
+
+    public WriteBehindBuffer(Database database, WriteBehindProperties properties, MeterRegistry registry) {
+        this(database, properties, registry, (collection, id) -> { });
+    }
+
+    /**
+     * @param flushed called with the collection and id of every flushed document once the transaction is committed
+     */
+    public WriteBehindBuffer(Database database, WriteBehindProperties properties, MeterRegistry registry, BiConsumer<Collection, String> flushed) {
+        this.database = database;
+        this.flushed = flushed;
+        this.properties = properties;
+        this.writes = Counter.builder("couchbase.writebehind.writes").register(registry);
+        this.absorbed = Counter.builder("couchbase.writebehind.absorbed").register(registry);
+        this.failures = Counter.builder("couchbase.writebehind.failures").register(registry);
+        this.flushes = Timer.builder("couchbase.writebehind.flush").register(registry);
+        Gauge.builder("couchbase.writebehind.pending", this, WriteBehindBuffer::getPendingCount).register(registry);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        long window = properties.getWindow().toMillis();
+        this.executor.scheduleWithFixedDelay(this::flushQuietly, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replaces the whole document, mutations buffered before it are discarded.
+     */
+    public void save(Collection collection, MutableDocument document) {
+        buffer(collection, document.getId(), p -> {
+            p.replacement = document.toMutable(); // later changes of the caller's document aren't buffered
+            p.mutations.clear();
+        });
+    }
+
+    /**
+     * Applies the mutation to the latest revision of the document, or to a new document, when the buffer is flushed.
+     */
+    public void update(Collection collection, String id, Consumer<MutableDocument> mutation) {
+        buffer(collection, id, p -> p.mutations.add(mutation));
+    }
+
+    private void buffer(Collection collection, String id, Consumer<Pending> write) {
+        Key key = new Key(collection.getFullName(), id);
+        while (true) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("Write-behind buffer is closed");
+                }
+                Pending p = pending.get(key);
+                if (p == null && pending.size() < properties.getMaxPending()) {
+                    p = new Pending(collection);
+                    pending.put(key, p);
+                }
+                if (p != null) {
+                    write.accept(p);
+                    p.writes++;
+                    break;
+                }
+            }
+            flushQuietly(); // full, the writer makes room on its own thread
+        }
+        writes.increment();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getAbsorbedCount() {
+        return absorbedCount.get();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Error flushing the write-behind buffer", e);
+        }
+    }
+
+    /**
+     * Saves the buffered writes on the calling thread.
+     */
+    public void flush() {
+        // a flush at a time, so the writes of a document are saved in order
+        synchronized (flushLock) {
+            Map<Key, Pending> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+            long start = System.nanoTime();
+            long[] saved = {0, 0};
+            Map<Key, Pending> failed = new LinkedHashMap<>();
+            try {
+                database.inBatch(() -> batch.forEach((key, p) -> {
+                    if (save(key, p)) {
+                        saved[0]++;
+                        saved[1] += p.writes - 1;
+                    } else {
+                        failed.put(key, p);
+                    }
+                }));
+            } catch (CouchbaseLiteException e) {
+                log.error("Write-behind transaction of {} documents failed, it will be retried", batch.size(), e);
+                requeue(batch);
+                return;
+            }
+            if (!failed.isEmpty()) {
+                requeue(failed);
+            }
+            batch.forEach((key, p) -> {
+                if (!failed.containsKey(key)) {
+                    flushed.accept(p.collection, key.id());
+                }
+            });
+            absorbed.increment(saved[1]);
+            absorbedCount.addAndGet(saved[1]);
+            long elapsed = System.nanoTime() - start;
+            flushes.record(elapsed, TimeUnit.NANOSECONDS);
+            log.debug("Write-behind flushed {} documents ({} writes) in {} ms", saved[0],
+                    batch.values().stream().mapToInt(p -> p.writes).sum(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    /**
+     * Puts the failed writes, of a rolled back transaction or of documents that failed to save, back in front of the
+     * ones buffered since, so they are saved in order by the next flush.
+     */
+    private synchronized void requeue(Map<Key, Pending> batch) {
+        Map<Key, Pending> merged = new LinkedHashMap<>();
+        batch.forEach((key, p) -> {
+            if (++p.attempts < MAX_ATTEMPTS) {
+                merged.put(key, p);
+            } else {
+                failures.increment(p.writes);
+                log.error("Write-behind save of {} in {} failed {} times, {} writes dropped", key.id(), key.collection(), p.attempts, p.writes);
+            }
+        });
+        pending.forEach((key, newer) -> {
+            Pending older = merged.get(key);
+            if (older == null) {
+                merged.put(key, newer);
+            } else {
+                older.merge(newer);
+            }
+        });
+        pending = merged;
+    }
+
+    private boolean save(Key key, Pending p) {
+        try {
+            // a copy, so a transaction that is rolled back and retried doesn't apply the mutations twice
+            MutableDocument doc = p.replacement == null ? null : p.replacement.toMutable();
+            if (doc == null) {
+                Document current = p.collection.getDocument(key.id());
+                doc = current == null ? new MutableDocument(key.id()) : current.toMutable();
+            }
+            for (Consumer<MutableDocument> mutation : p.mutations) {
+                mutation.accept(doc);
+            }
+            p.collection.save(doc);
+            return true;
+        } catch (CouchbaseLiteException | RuntimeException e) {
+            log.error("Write-behind save of {} in {} failed, it will be retried", key.id(), key.collection(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Rejects new writes, stops the periodic flush and saves the writes still buffered, retrying them on failure.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(properties.getWindow().toMillis() + 5000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (getPendingCount() > 0) {
+            flush(); // ends once saved or dropped after MAX_ATTEMPTS
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.couchbase.mobile.config;
 import com.couchbase.lite.CouchbaseLiteException;
 import com.couchbase.mobile.client.ClientBuilder;
 import com.couchbase.mobile.client.ClientLite;
+import com.couchbase.mobile.client.ClientLitePool;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -21,8 +24,19 @@ public class AppConfig {
     }
 
     @Bean
-    public ClientLite clientLite(CouchbaseLiteProperties properties) throws CouchbaseLiteException {
-        return new ClientBuilder(properties).build();
+    public ClientLite clientLite(CouchbaseLiteProperties properties, MeterRegistry meterRegistry) throws CouchbaseLiteException {
+        return new ClientBuilder(properties, meterRegistry).build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ClientLitePool clientLitePool(CouchbaseLiteProperties properties, MeterRegistry meterRegistry) {
+        return new ClientLitePool(new ClientBuilder(properties, meterRegistry), properties.getPool(), meterRegistry);
+    }
+
+    @PreDestroy
+    public void closeLogSink() {
+        // after the clients, so the logs of their shutdown are drained too
+        ClientBuilder.closeLogSink();
     }
 
 }
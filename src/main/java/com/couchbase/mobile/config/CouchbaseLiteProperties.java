@@ -1,9 +1,6 @@
 package com.couchbase.mobile.config;
 
-import com.couchbase.lite.Endpoint;
-import com.couchbase.lite.LogLevel;
-import com.couchbase.lite.ReplicatorType;
-import com.couchbase.lite.URLEndpoint;
+import com.couchbase.lite.*;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -27,6 +24,9 @@ public class CouchbaseLiteProperties {
     RemoteProperties remote = new RemoteProperties();
     LocalDBProperties local = new LocalDBProperties();
     LogProperties log = new LogProperties();
+    PoolProperties pool = new PoolProperties();
+    ListenerProperties listeners = new ListenerProperties();
+    LoadProperties load = new LoadProperties();
 
     public String toString() {
         return """
@@ -35,7 +35,10 @@ public class CouchbaseLiteProperties {
                 \t local: %s
                 \t remote: %s
                 \t log: %s
-                """.formatted(local, remote, log);
+                \t pool: %s
+                \t listeners: %s
+                \t load: %s
+                """.formatted(local, remote, log, pool, listeners, load);
     }
 
 
@@ -43,13 +46,72 @@ public class CouchbaseLiteProperties {
     public static class CollectionProperties {
         List<String> channelsFilter = new ArrayList<>();
         List<String> documentIDsFilter = new ArrayList<>();
+        // collections of the same shard share a replicator
+        String shard;
+        FilterProperties pushFilter;
+        FilterProperties pullFilter;
+        ConflictResolverProperties conflictResolver = new ConflictResolverProperties();
 
 
         public String toString() {
             return """
                     
                     \t\t\t\tdocumentIDs-filter: %s
-                    \t\t\t\tchannels-filter: %s""".formatted(documentIDsFilter.isEmpty()? "--none--": join(",", documentIDsFilter),channelsFilter.isEmpty()? "--none--": join(",", channelsFilter));
+                    \t\t\t\tchannels-filter: %s
+                    \t\t\t\tshard: %s
+                    \t\t\t\tpush-filter: %s
+                    \t\t\t\tpull-filter: %s
+                    \t\t\t\tconflict-resolver: %s""".formatted(documentIDsFilter.isEmpty()? "--none--": join(",", documentIDsFilter),channelsFilter.isEmpty()? "--none--": join(",", channelsFilter), shard == null ? "--default--" : shard,
+                    pushFilter == null ? "--none--" : pushFilter, pullFilter == null ? "--none--" : pullFilter, conflictResolver);
+        }
+    }
+
+    public enum ConflictStrategy { DEFAULT, LAST_WRITER_WINS, MERGE }
+
+    /**
+     * {@code DEFAULT} keeps the Couchbase Lite resolver. {@code LAST_WRITER_WINS} keeps the revision with the highest
+     * {@code timestamp-field}. {@code MERGE} merges field by field, fields changed on both sides are taken from the
+     * newest revision and {@code counter-fields} are merged as per-device counters (see
+     * {@link com.couchbase.mobile.client.FieldMergeConflictResolver}).
+     */
+    @Data
+    public static class ConflictResolverProperties {
+        ConflictStrategy strategy = ConflictStrategy.DEFAULT;
+        String timestampField = "updatedAt";
+        List<String> counterFields = new ArrayList<>();
+
+        public String toString() {
+            return strategy == ConflictStrategy.DEFAULT ? strategy.name() : "%s (timestamp-field: %s, counter-fields: %s)".formatted(strategy,
+                    timestampField, counterFields.isEmpty() ? "--none--" : join(",", counterFields));
+        }
+    }
+
+    public enum FilterOperator { EQUALS, NOT_EQUALS, IN, NOT_IN, EXISTS, MISSING }
+
+    @Data
+    public static class PredicateProperties {
+        String property;
+        FilterOperator operator = FilterOperator.EQUALS;
+        List<String> values = new ArrayList<>();
+
+        public String toString() {
+            return "%s %s %s".formatted(property, operator, values);
+        }
+    }
+
+    /**
+     * A document is replicated when its id has none of the excluded prefixes and it matches every predicate. Deleted
+     * documents have no properties, they are replicated depending on {@code deletions}.
+     */
+    @Data
+    public static class FilterProperties {
+        List<PredicateProperties> predicates = new ArrayList<>();
+        List<String> excludedIdPrefixes = new ArrayList<>();
+        boolean deletions = true;
+
+        public String toString() {
+            return "predicates: %s, excluded-id-prefixes: %s, deletions: %b".formatted(predicates,
+                    excludedIdPrefixes.isEmpty() ? "--none--" : join(",", excludedIdPrefixes), deletions);
         }
     }
 
@@ -66,6 +128,27 @@ public class CouchbaseLiteProperties {
         }
     }
 
+    @Data
+    public static class RetryProperties {
+        boolean enabled = true;
+        Duration initialDelay = Duration.ofSeconds(1);
+        Duration maxDelay = Duration.ofMinutes(5);
+        double multiplier = 2.0;
+        double jitter = 0.5;
+        int maxAttempts = 10;
+
+        public String toString() {
+            return """
+                    
+                    \t\t\tenabled: %b
+                    \t\t\tinitial-delay: %s
+                    \t\t\tmax-delay: %s
+                    \t\t\tmultiplier: %.1f
+                    \t\t\tjitter: %.2f
+                    \t\t\tmax-attempts: %d""".formatted(enabled, initialDelay, maxDelay, multiplier, jitter, maxAttempts);
+        }
+    }
+
     @Data
     public static class RemoteProperties {
         public static final String DEFAULT_SERVER = "127.0.0.1";
@@ -79,7 +162,9 @@ public class CouchbaseLiteProperties {
         private ReplicatorType replicatorType = ReplicatorType.PUSH_AND_PULL;
         private boolean resetCheckpoint = false;
         private Map<String, CollectionProperties> collections = new HashMap<>();
+        private boolean replicatorPerCollection = false;
         private AuthenticatorProperties authenticator;
+        private RetryProperties retry = new RetryProperties();
 
         public Endpoint getEndpoint() {
             Endpoint endpoint;
@@ -103,8 +188,10 @@ public class CouchbaseLiteProperties {
                     \t\treplicator-type: %s
                     \t\treset-checkpoint: %b 
                     \t\tcollections: %s 
+                    \t\treplicator-per-collection: %b
                     \t\tauthenticator: %s
-                    """.formatted(endpointUrl, continuous, replicatorType, resetCheckpoint,collectionsToString(), authenticator);
+                    \t\tretry: %s
+                    """.formatted(endpointUrl, continuous, replicatorType, resetCheckpoint,collectionsToString(), replicatorPerCollection, authenticator, retry);
         }
     }
 
@@ -114,12 +201,48 @@ public class CouchbaseLiteProperties {
         String dbPath = "data";
         ScopeProperties scope = new ScopeProperties();
         boolean flushPreviousDb = true;
+        // prebuilt <database>.cblite2 snapshot copied when the database doesn't exist yet
+        String seedDb = null;
         boolean autoPurge = true;
+        // password, the key is derived from it with PBKDF2 when the database is opened at startup
         String encryptionKey = null;
+        // pre-derived 32-byte AES key, raw or Base64 encoded, read from a file or an environment variable
+        String encryptionKeyFile = null;
+        String encryptionKeyEnv = null;
+        int batchSize = 500;
+        int pageSize = 1000;
+        Duration countReconcileInterval = null;
+        QueryProperties query = new QueryProperties();
+        ChangeFeedProperties changeFeed = new ChangeFeedProperties();
+        // expiration policy per collection name
+        Map<String, ExpirationProperties> expiration = new HashMap<>();
+        Duration expirationSweepInterval = Duration.ofMinutes(5);
+        MaintenanceProperties maintenance = new MaintenanceProperties();
+        DocumentCacheProperties documentCache = new DocumentCacheProperties();
+        WriteBehindProperties writeBehind = new WriteBehindProperties();
+
+        private String expirationToString() {
+            return expiration.entrySet().stream().map(e -> "\n\t\t\t%s: %s".formatted(e.getKey(), e.getValue())).collect(joining());
+        }
+
+        public boolean isSeeded() {
+            return seedDb != null && !seedDb.isEmpty();
+        }
 
+        public File getSeedDbFile() {
+            return new File(seedDb);
+        }
 
         public boolean isEncryptedDb() {
-            return !Objects.isNull(this.encryptionKey) && !encryptionKey.isEmpty();
+            return isSet(encryptionKey) || isSet(encryptionKeyFile) || isSet(encryptionKeyEnv);
+        }
+
+        public boolean isRawEncryptionKey() {
+            return isSet(encryptionKeyFile) || isSet(encryptionKeyEnv);
+        }
+
+        private static boolean isSet(String value) {
+            return !Objects.isNull(value) && !value.isEmpty();
         }
 
         public String getDbFolderName() {
@@ -145,13 +268,130 @@ public class CouchbaseLiteProperties {
                     \t\tdb-path: %s
                     \t\tscope: %s 
                     \t\tflush-previous-db: %b
+                    \t\tseed-db: %s
                     \t\tauto-purge: %b
-                    \t\tencryption: %b 
-                    """.formatted(database,dbPath, scope,flushPreviousDb,autoPurge, isEncryptedDb());
+                    \t\tencryption: %s 
+                    \t\tbatch-size: %d
+                    \t\tpage-size: %d
+                    \t\tcount-reconcile-interval: %s
+                    \t\tquery: %s
+                    \t\tchange-feed: %s
+                    \t\texpiration: %s
+                    \t\texpiration-sweep-interval: %s
+                    \t\tmaintenance: %s
+                    \t\tdocument-cache: %s
+                    \t\twrite-behind: %s
+                    """.formatted(database,dbPath, scope,flushPreviousDb, isSeeded() ? seedDb : "--none--",autoPurge, !isEncryptedDb() ? "--none--" : isRawEncryptionKey() ? "raw key" : "password", batchSize, pageSize, countReconcileInterval == null ? "--none--" : countReconcileInterval, query, changeFeed, expiration.isEmpty() ? "--none--" : expirationToString(), expirationSweepInterval, maintenance, documentCache, writeBehind);
         }
 
     }
 
+    @Data
+    public static class QueryProperties {
+        Duration slowThreshold = Duration.ofMillis(200);
+        int cacheSize = 64;
+
+        public String toString() {
+            return """
+                    
+                    \t\t\tslow-threshold: %s
+                    \t\t\tcache-size: %d""".formatted(slowThreshold, cacheSize);
+        }
+    }
+
+    /**
+     * {@code ttl} expires documents a fixed time after they are first written, {@code ttl-since-update} after their
+     * last update (ignored when {@code ttl} is set) and {@code max-documents} purges the least recently updated
+     * documents beyond the limit.
+     */
+    @Data
+    public static class ExpirationProperties {
+        Duration ttl;
+        Duration ttlSinceUpdate;
+        long maxDocuments = 0;
+
+        public boolean hasTtl() {
+            return ttl != null || ttlSinceUpdate != null;
+        }
+
+        public String toString() {
+            return "ttl: %s, ttl-since-update: %s, max-documents: %s".formatted(ttl == null ? "--none--" : ttl,
+                    ttlSinceUpdate == null ? "--none--" : ttlSinceUpdate, maxDocuments > 0 ? maxDocuments : "--unlimited--");
+        }
+    }
+
+    /**
+     * Thresholds are evaluated every {@code check-interval} against the writes and the file growth since the last
+     * run, a threshold set to 0 is disabled.
+     */
+    @Data
+    public static class MaintenanceProperties {
+        boolean enabled = false;
+        Duration checkInterval = Duration.ofMinutes(5);
+        // growth of the database files since the last compaction, 0.5 = 50%
+        double compactAfterGrowth = 0.5;
+        long optimizeAfterWrites = 1000;
+        long fullOptimizeAfterWrites = 50000;
+        long reindexAfterWrites = 0;
+
+        public String toString() {
+            return """
+                    
+                    \t\t\tenabled: %b
+                    \t\t\tcheck-interval: %s
+                    \t\t\tcompact-after-growth: %.2f
+                    \t\t\toptimize-after-writes: %d
+                    \t\t\tfull-optimize-after-writes: %d
+                    \t\t\treindex-after-writes: %d""".formatted(enabled, checkInterval, compactAfterGrowth, optimizeAfterWrites,
+                    fullOptimizeAfterWrites, reindexAfterWrites);
+        }
+    }
+
+    @Data
+    public static class DocumentCacheProperties {
+        boolean enabled = false;
+        // estimated size of the cached documents
+        long maxBytes = 64L * 1024 * 1024;
+
+        public String toString() {
+            return enabled ? "max-bytes: %d".formatted(maxBytes) : "--disabled--";
+        }
+    }
+
+    @Data
+    public static class WriteBehindProperties {
+        boolean enabled = false;
+        // mutations of the same document within the window are saved as a single revision
+        Duration window = Duration.ofMillis(500);
+        // bound of the buffered documents, the writer of another document flushes the buffer before the window ends
+        int maxPending = 10000;
+
+        public String toString() {
+            return enabled ? "window: %s, max-pending: %d".formatted(window, maxPending) : "--disabled--";
+        }
+    }
+
+    public enum OverflowPolicy { DROP_OLDEST, DROP_LATEST, ERROR }
+
+    @Data
+    public static class ChangeFeedProperties {
+        // document ids buffered per subscriber waiting for demand
+        int bufferSize = 10000;
+        // document ids per delivered batch
+        int batchSize = 100;
+        OverflowPolicy overflow = OverflowPolicy.DROP_OLDEST;
+        boolean resolveDocuments = false;
+
+        public String toString() {
+            return """
+                    
+                    \t\t\tbuffer-size: %d
+                    \t\t\tbatch-size: %d
+                    \t\t\toverflow: %s
+                    \t\t\tresolve-documents: %b""".formatted(bufferSize, batchSize, overflow, resolveDocuments);
+        }
+    }
+
     @Data
     public static class LogProperties {
       String path = "logs";
@@ -159,6 +399,8 @@ public class CouchbaseLiteProperties {
       long maxSize = 10;
       int rotationCount = 10;
       boolean plainText = false;
+      LogLevel consoleLevel = LogLevel.WARNING;
+      Slf4jLogProperties slf4j = new Slf4jLogProperties();
 
       public String toString() {
           return """
@@ -168,10 +410,95 @@ public class CouchbaseLiteProperties {
                   \t\tmax-size: %d
                   \t\trotation-count: %d
                   \t\tplaintext: %b
-                  """.formatted(path, level, maxSize, rotationCount, plainText);
+                  \t\tconsole-level: %s
+                  \t\tslf4j: %s
+                  """.formatted(path, level, maxSize, rotationCount, plainText, consoleLevel, slf4j);
       }
     }
 
+    @Data
+    public static class Slf4jLogProperties {
+        boolean enabled = false;
+        LogLevel level = LogLevel.INFO;
+        // overrides of the level per log domain
+        Map<LogDomain, LogLevel> domains = new EnumMap<>(LogDomain.class);
+        // pending records, rounded up to a power of two, records are dropped when it's full
+        int bufferSize = 8192;
+        // identical messages (ignoring numbers) logged per window, the rest are only counted
+        int sampleBurst = 5;
+        Duration sampleWindow = Duration.ofSeconds(10);
+
+        public String toString() {
+            return """
+                    
+                    \t\t\tenabled: %b
+                    \t\t\tlevel: %s
+                    \t\t\tdomains: %s
+                    \t\t\tbuffer-size: %d
+                    \t\t\tsample-burst: %d
+                    \t\t\tsample-window: %s""".formatted(enabled, level, domains.isEmpty() ? "--none--" : domains, bufferSize, sampleBurst, sampleWindow);
+        }
+    }
+
+    @Data
+    public static class LoadProperties {
+        // runs the headless load generator instead of the interactive menu
+        boolean enabled = false;
+        Duration duration = Duration.ofMinutes(1);
+        int threads = 4;
+        // target rate of all the threads together, 0 for unbounded
+        int opsPerSecond = 100;
+        int documentSize = 256;
+        double createRatio = 0.5;
+        double updateRatio = 0.3;
+        double readRatio = 0.2;
+        Duration reportInterval = Duration.ofSeconds(10);
+        // collections to load, all the scope collections when empty
+        List<String> collections = new ArrayList<>();
+        boolean replicate = false;
+
+        public String toString() {
+            return """
+                    
+                    \t\tenabled: %b
+                    \t\tduration: %s
+                    \t\tthreads: %d
+                    \t\tops-per-second: %d
+                    \t\tdocument-size: %d
+                    \t\tmix (create/update/read): %.2f/%.2f/%.2f
+                    \t\treport-interval: %s
+                    \t\tcollections: %s
+                    \t\treplicate: %b""".formatted(enabled, duration, threads, opsPerSecond, documentSize, createRatio, updateRatio, readRatio,
+                    reportInterval, collections.isEmpty() ? "--all--" : join(",", collections), replicate);
+        }
+    }
+
+    @Data
+    public static class ListenerProperties {
+        int threads = 2;
+        int queueCapacity = 100;
+
+        public String toString() {
+            return """
+                    
+                    \t\tthreads: %d
+                    \t\tqueue-capacity: %d""".formatted(threads, queueCapacity);
+        }
+    }
+
+    @Data
+    public static class PoolProperties {
+        int maxOpen = 16;
+        boolean startReplication = true;
+
+        public String toString() {
+            return """
+                    
+                    \t\tmax-open: %d
+                    \t\tstart-replication: %b""".formatted(maxOpen, startReplication);
+        }
+    }
+
     @Data
     public static class ScopeProperties {
         public static final String DEFAULT_SCOPE = "_default";
@@ -179,12 +506,47 @@ public class CouchbaseLiteProperties {
 
         String name = DEFAULT_SCOPE;
         List<String> collections = List.of(DEFAULT_COLLECTION);
+        Map<String, List<IndexProperties>> indexes = new HashMap<>();
+
+        private String indexesToString() {
+            return indexes.entrySet().stream().map(e -> "\n\t\t\t\t%s: %s".formatted(e.getKey(), e.getValue())).collect(joining());
+        }
 
         public String toString() {
             return """
 
                     \t\t\tname: %s
-                    \t\t\tcollections: %s""".formatted(name, join(",", collections));
+                    \t\t\tcollections: %s
+                    \t\t\tindexes: %s""".formatted(name, join(",", collections), indexes.isEmpty() ? "--none--" : indexesToString());
+        }
+    }
+
+    public enum IndexType { VALUE, ARRAY, FULL_TEXT }
+
+    @Data
+    public static class IndexProperties {
+        String name;
+        IndexType type = IndexType.VALUE;
+        List<String> expressions = new ArrayList<>();
+        // array indexes only: path of the array property to unnest
+        String path;
+        // full-text indexes only
+        String language;
+        boolean ignoreAccents = false;
+
+        public IndexConfiguration toIndexConfiguration() {
+            return switch (type) {
+                case VALUE -> new ValueIndexConfiguration(expressions.toArray(new String[0]));
+                case ARRAY -> expressions.isEmpty() ? new ArrayIndexConfiguration(path) : new ArrayIndexConfiguration(path, expressions);
+                case FULL_TEXT -> {
+                    FullTextIndexConfiguration config = new FullTextIndexConfiguration(expressions.toArray(new String[0])).ignoreAccents(ignoreAccents);
+                    yield language == null ? config : config.setLanguage(language);
+                }
+            };
+        }
+
+        public String toString() {
+            return "%s %s(%s%s)".formatted(name, type, path == null ? "" : path + ": ", join(",", expressions));
         }
     }
 }
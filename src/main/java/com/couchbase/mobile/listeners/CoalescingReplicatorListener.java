@@ -0,0 +1,85 @@
+package com.couchbase.mobile.listeners;
+
+import com.couchbase.lite.ReplicatorChange;
+import com.couchbase.lite.ReplicatorChangeListener;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the delegate listener on an executor instead of the thread notifying the change. Bursts of changes are
+ * coalesced: while the delegate is busy only the latest change is kept, so a slow listener processes the current
+ * state once instead of falling behind, and it never blocks the replicator notifications. When the executor is
+ * saturated the dispatch is retried, so the last change of a burst is delivered even if no notification follows it.
+ */
+@Slf4j
+public class CoalescingReplicatorListener implements ReplicatorChangeListener {
+    private static final long RETRY_DELAY_MS = 100;
+
+    private final ReplicatorChangeListener delegate;
+    private final Executor executor;
+    private final Counter coalesced;
+    private final Counter rejected;
+    private final AtomicReference<ReplicatorChange> latest = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public CoalescingReplicatorListener(ReplicatorChangeListener delegate, Executor executor, Counter coalesced, Counter rejected) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.coalesced = coalesced;
+        this.rejected = rejected;
+    }
+
+    @Override
+    public void changed(ReplicatorChange change) {
+        if (latest.getAndSet(change) != null) {
+            coalesced.increment();
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            dispatch();
+        }
+    }
+
+    private void dispatch() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            if (executor instanceof ExecutorService service && service.isShutdown()) {
+                scheduled.set(false);
+                log.debug("Listener executor is shut down, replication change dropped");
+                return;
+            }
+            // still scheduled: the latest change, which may be the final one such as STOPPED, is retried
+            rejected.increment();
+            log.warn("Listener executor is saturated, replication change retried in {} ms", RETRY_DELAY_MS);
+            CompletableFuture.delayedExecutor(RETRY_DELAY_MS, TimeUnit.MILLISECONDS).execute(this::dispatch);
+        }
+    }
+
+    private void drain() {
+        try {
+            ReplicatorChange change;
+            while ((change = latest.getAndSet(null)) != null) {
+                delegate.changed(change);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error in replication change listener", e);
+        } finally {
+            scheduled.set(false);
+            if (latest.get() != null) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.couchbase.mobile.listeners;
+
+import com.couchbase.lite.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the activity of a replicator shard through Micrometer, every meter is tagged with the shard name:
+ * <ul>
+ *     <li>{@code couchbase.replication.documents} replicated documents per collection and direction (push/pull)</li>
+ *     <li>{@code couchbase.replication.errors} replicator and document errors by domain and code</li>
+ *     <li>{@code couchbase.replication.progress.completed/total} replicator progress</li>
+ *     <li>{@code couchbase.replication.activity} time spent in each activity level</li>
+ * </ul>
+ */
+@Slf4j
+public class ReplicationMetricsListener implements ReplicatorChangeListener, DocumentReplicationListener {
+    private static final String PREFIX = "couchbase.replication";
+
+    private final MeterRegistry registry;
+    private final String shard;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private ReplicatorActivityLevel level = ReplicatorActivityLevel.STOPPED;
+    private long levelSince = System.nanoTime();
+
+    public ReplicationMetricsListener(MeterRegistry registry, String shard) {
+        this.registry = registry;
+        this.shard = shard;
+        Gauge.builder(PREFIX + ".progress.completed", completed, AtomicLong::get).tag("shard", shard).register(registry);
+        Gauge.builder(PREFIX + ".progress.total", total, AtomicLong::get).tag("shard", shard).register(registry);
+    }
+
+    public ReplicationMetricsListener attach(Replicator replicator) {
+        replicator.addChangeListener(this);
+        replicator.addDocumentReplicationListener(this);
+        return this;
+    }
+
+    @Override
+    public void changed(ReplicatorChange change) {
+        ReplicatorStatus status = change.getStatus();
+        completed.set(status.getProgress().getCompleted());
+        total.set(status.getProgress().getTotal());
+        recordActivity(status.getActivityLevel());
+        if (status.getError() != null) {
+            error("replicator", status.getError());
+        }
+    }
+
+    @Override
+    public void replication(DocumentReplication replication) {
+        String direction = replication.isPush() ? "push" : "pull";
+        for (ReplicatedDocument doc : replication.getDocuments()) {
+            if (doc.getError() != null) {
+                error("document", doc.getError());
+            } else {
+                Counter.builder(PREFIX + ".documents")
+                        .tag("shard", shard)
+                        .tag("collection", doc.getCollectionScope() + "." + doc.getCollectionName())
+                        .tag("direction", direction)
+                        .register(registry)
+                        .increment();
+            }
+        }
+    }
+
+    private synchronized void recordActivity(ReplicatorActivityLevel newLevel) {
+        if (newLevel == level) {
+            return;
+        }
+        long now = System.nanoTime();
+        Timer.builder(PREFIX + ".activity")
+                .tag("shard", shard)
+                .tag("level", level.name())
+                .register(registry)
+                .record(now - levelSince, TimeUnit.NANOSECONDS);
+        level = newLevel;
+        levelSince = now;
+    }
+
+    private void error(String source, CouchbaseLiteException error) {
+        Counter.builder(PREFIX + ".errors")
+                .tag("shard", shard)
+                .tag("source", source)
+                .tag("domain", String.valueOf(error.getDomain()))
+                .tag("code", String.valueOf(error.getCode()))
+                .register(registry)
+                .increment();
+    }
+}
@@ -21,19 +21,17 @@ public class StatusChangeListener implements ReplicatorChangeListener {
     public void changed(ReplicatorChange change) {
 
             if (change.getStatus().getError() != null) {
-                log.error("Error in replication ( {} ): {}",change.getStatus().getActivityLevel(), change.getStatus().getError().getMessage());
+                log.error("Error in replication `{}` ( {} ): {}", client.getShard(change.getReplicator()), change.getStatus().getActivityLevel(), change.getStatus().getError().getMessage());
             } else {
-                log.info("Replication in progress: " + change.getStatus().getActivityLevel());
+                log.info("Replication `{}` in progress: {} ({}/{})", client.getShard(change.getReplicator()), change.getStatus().getActivityLevel(),
+                        change.getStatus().getProgress().getCompleted(), change.getStatus().getProgress().getTotal());
                 // TODO add replication status change callback here. i.e. sync replication icon of started, stopped, etc.
             }
 
             if(change.getStatus().getActivityLevel().equals(ReplicatorActivityLevel.IDLE) || change.getStatus().getActivityLevel().equals(ReplicatorActivityLevel.STOPPED)){
                 log.info("Documents in the local database: {}", client.count());
                 if (change.getReplicator().getConfig().isContinuous() && change.getStatus().getActivityLevel().equals(ReplicatorActivityLevel.STOPPED)) {
-                    log.error("Replication stopped unexpectedly!");
-                    // TODO replication error handle here
-                    // log.info("Starting replication again...");
-                    // change.getReplicator().start(); // TODO add a maximum number of retries and/or backoff strategy
+                    log.error("Replication stopped unexpectedly!"); // restarts are handled by the ReplicationSupervisor
                 }
             }
     }
@@ -0,0 +1,168 @@
+package com.couchbase.mobile.load;
+
+import com.couchbase.lite.*;
+import com.couchbase.lite.Collection;
+import com.couchbase.mobile.client.ClientLite;
+import com.couchbase.mobile.config.CouchbaseLiteProperties.LoadProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Headless workload: {@code threads} workers create, update and read RFID documents (same shape as the ones of the
+ * CRUD menu, padded up to {@code document-size}) spread round-robin over the configured collections at a target rate,
+ * reporting throughput and latency percentiles every {@code report-interval} and once more when the run ends.
+ */
+@Slf4j
+public class LoadGenerator implements Runnable {
+    enum Operation { CREATE, UPDATE, READ }
+
+    private static final Array CHANNELS = new MutableArray().addString("channel1").addString("channel2").addString("blue");
+
+    private final ClientLite client;
+    private final LoadProperties properties;
+    private final Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final List<Collection> collections;
+    private final String payload;
+    private volatile boolean running = true;
+
+    public LoadGenerator(ClientLite client, LoadProperties properties, MeterRegistry registry) {
+        this.client = client;
+        this.properties = properties;
+        for (Operation op : Operation.values()) {
+            timers.put(op, Timer.builder("couchbase.load.operation")
+                    .tag("operation", op.name().toLowerCase())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry));
+            errors.put(op, new AtomicLong());
+        }
+        this.collections = client.getCollections().stream()
+                .filter(c -> properties.getCollections().isEmpty() || properties.getCollections().contains(c.getName()))
+                .sorted(Comparator.comparing(Collection::getName))
+                .toList();
+        this.payload = "x".repeat(Math.max(0, properties.getDocumentSize()));
+    }
+
+    @Override
+    public void run() {
+        if (collections.isEmpty()) {
+            log.error("No collections to load, check couchbase.load.collections");
+            return;
+        }
+        log.info("Starting load: {}", properties);
+        ExecutorService workers = Executors.newFixedThreadPool(properties.getThreads());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+        long[] lastCount = {0};
+        long[] lastReport = {start};
+        reporter.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            lastCount[0] = report("progress", lastCount[0], now - lastReport[0]);
+            lastReport[0] = now;
+        }, properties.getReportInterval().toMillis(), properties.getReportInterval().toMillis(), TimeUnit.MILLISECONDS);
+        for (int i = 0; i < properties.getThreads(); i++) {
+            int worker = i;
+            workers.execute(() -> work(worker));
+        }
+        try {
+            workers.shutdown();
+            if (!workers.awaitTermination(properties.getDuration().toMillis(), TimeUnit.MILLISECONDS)) {
+                running = false;
+                workers.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        } finally {
+            reporter.shutdownNow();
+        }
+        report("total", 0, System.nanoTime() - start);
+    }
+
+    private void work(int worker) {
+        double threadRate = properties.getOpsPerSecond() / (double) properties.getThreads();
+        long interval = threadRate > 0 ? (long) (1_000_000_000L / threadRate) : 0;
+        long next = System.nanoTime();
+        long created = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            if (interval > 0) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                next += interval;
+            }
+            Operation op = created == 0 ? Operation.CREATE : pick(random.nextDouble());
+            long seq = op == Operation.CREATE ? created++ : random.nextLong(created);
+            // the collection follows from the sequence, so updates and reads hit the collection the id was created in
+            Collection collection = collections.get((int) (seq % collections.size()));
+            String id = id(worker, seq);
+            long start = System.nanoTime();
+            try {
+                switch (op) {
+                    case CREATE -> collection.save(document(id, collection.getName()));
+                    case UPDATE -> update(collection, id);
+                    case READ -> collection.getDocument(id);
+                }
+                timers.get(op).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (CouchbaseLiteException | RuntimeException e) {
+                errors.get(op).incrementAndGet();
+                log.debug("Error in {} of {}: {}", op, id, e.getMessage());
+            }
+        }
+    }
+
+    private Operation pick(double r) {
+        double total = properties.getCreateRatio() + properties.getUpdateRatio() + properties.getReadRatio();
+        double x = r * total;
+        if (x < properties.getCreateRatio()) {
+            return Operation.CREATE;
+        }
+        return x < properties.getCreateRatio() + properties.getUpdateRatio() ? Operation.UPDATE : Operation.READ;
+    }
+
+    private static String id(int worker, long seq) {
+        return "load:%02d:%010d".formatted(worker, seq);
+    }
+
+    private MutableDocument document(String id, String type) {
+        return new MutableDocument(id)
+                .setString("rfid", "123456789")
+                .setString("type", type)
+                .setArray("channels", CHANNELS)
+                .setArray("destination", CHANNELS)
+                .setString("payload", payload)
+                .setLong("updatedAt", System.currentTimeMillis());
+    }
+
+    private void update(Collection collection, String id) throws CouchbaseLiteException {
+        Document doc = collection.getDocument(id);
+        MutableDocument mDoc = doc == null ? document(id, collection.getName()) : doc.toMutable();
+        collection.save(mDoc.setString("myproperty", "value " + System.currentTimeMillis()).setLong("updatedAt", System.currentTimeMillis()));
+    }
+
+    private long report(String label, long previousCount, long elapsedNanos) {
+        long count = timers.values().stream().mapToLong(Timer::count).sum();
+        double seconds = elapsedNanos / 1_000_000_000d;
+        log.info("Load {}: {} ops in {} s ({} ops/s), {} docs in the local database", label, count - previousCount,
+                "%.1f".formatted(seconds), "%.1f".formatted((count - previousCount) / seconds), client.count());
+        timers.forEach((op, timer) -> {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            String percentiles = Arrays.stream(snapshot.percentileValues())
+                    .map(p -> "p%.0f=%.2fms".formatted(p.percentile() * 100, p.value(TimeUnit.MILLISECONDS)))
+                    .collect(Collectors.joining(" "));
+            log.info(" - {}: {} ops, {} errors, mean={}ms {}", op, snapshot.count(), errors.get(op).get(),
+                    "%.2f".formatted(snapshot.mean(TimeUnit.MILLISECONDS)), percentiles);
+        });
+        return count;
+    }
+}
@@ -1,9 +1,12 @@
 package com.couchbase.mobile.menu;
 
 import com.couchbase.lite.*;
+import com.couchbase.mobile.client.BulkWriteResult;
 import com.couchbase.mobile.client.ClientLite;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.function.Supplier;
@@ -47,7 +50,7 @@ public class CRUDOperationsMenu extends AbstractMenu {
 
     private void actionUpdate(String id) {
         try {
-            Document doc = getDefaultCollection.get().getDocument(id);
+            Document doc = getDefaultCollection.get().getDocument(id); // not cached, the update is based on the latest revision
             if(doc != null) {
                 MutableDocument mDoc = doc.toMutable();
                 String value = "value "+System.currentTimeMillis();
@@ -62,26 +65,24 @@ public class CRUDOperationsMenu extends AbstractMenu {
         }
     }
 
-    private void actionCreateOne(String id) {
-        try {
-            getDefaultCollection.get().save(new MutableDocument(id)
-                    .setString("rfid", "123456789")
-                    .setString("type", getDefaultCollection.get().getName())
-                    .setArray("channels", DEFAULT_CHANNELS)
-                    .setArray("destination", DEFAULT_CHANNELS));
-            log.info("+ Created Document: " + id);
-        } catch (CouchbaseLiteException e) {
-            throw new RuntimeException(e);
-        }
+    private MutableDocument newDocument(String id) {
+        return new MutableDocument(id)
+                .setString("rfid", "123456789")
+                .setString("type", getDefaultCollection.get().getName())
+                .setArray("channels", DEFAULT_CHANNELS)
+                .setArray("destination", DEFAULT_CHANNELS);
     }
 
 
     private void actionCreate() {
         long seq = this.getDefaultCollection.get().getCount()+1;
+        List<MutableDocument> docs = new ArrayList<>();
         for(int i = 0; i < 6; i++) {
-            String id = "test:"+String.format("%05d", seq++);
-            actionCreateOne(id);
+            docs.add(newDocument("test:"+String.format("%05d", seq++)));
         }
+        BulkWriteResult result = clientLite.saveAll(getDefaultCollection.get(), docs);
+        docs.stream().map(Document::getId).filter(id -> !result.getFailures().containsKey(id)).forEach(id -> log.info("+ Created Document: " + id));
+        result.getFailures().forEach((id, error) -> log.error("Error creating document {}: {}", id, error));
     }
 
 }
@@ -5,17 +5,18 @@ import com.couchbase.mobile.client.ClientLite;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static com.couchbase.lite.ReplicatorActivityLevel.IDLE;
-import static com.couchbase.lite.ReplicatorActivityLevel.STOPPED;
-
 @Slf4j
 public class MainMenu extends AbstractMenu implements Runnable, AutoCloseable {
     public static final String DEFAULT_TITLE = "Main Menu";
     private static final String DEFAULT_EXIT_MESSAGE = "Exit";
+    private static final Duration AWAIT_TIMEOUT = Duration.ofMinutes(2);
     private final AtomicBoolean enabled = new AtomicBoolean(true);
     private final ClientLite client;
     private final CollectionMenu collectionMenu;
@@ -41,34 +42,31 @@ public class MainMenu extends AbstractMenu implements Runnable, AutoCloseable {
         actions.put("%s Replication".formatted(client.isStarted() ? "Stop" : "Start"), this::actionStartStopReplication);
     }
 
-    private void awaitUntil(ReplicatorActivityLevel status) {
-        //TODO via StatusChangeListener
-        while (!client.getReplicator().getStatus().getActivityLevel().equals(status)) {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                log.error("Error waiting for replication to stop: " + e.getMessage());
-            }
+    private void await(CompletableFuture<ReplicatorActivityLevel> status) {
+        try {
+            log.info("Replication is {}", status.get());
+        } catch (ExecutionException e) {
+            log.error("Error waiting for replication: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted waiting for replication: " + e.getMessage());
         }
     }
 
     private void actionStartStopReplication() {
         if (client.isStarted()) {
             log.info("Stopping replication...");
-            client.stop();
-            awaitUntil(STOPPED);
+            await(client.stopAndAwaitStopped(AWAIT_TIMEOUT));
         } else {
             log.info("Starting replication...");
-            client.start();
-            awaitUntil(IDLE);
+            await(client.startAndAwaitIdle(AWAIT_TIMEOUT));
         }
     }
 
     private void actionCount() {
         final AtomicLong total = new AtomicLong(0);
-        client.getCollections().forEach(col -> {
-            long collectionDocs = col.getCount();
-            log.info(" - {}: {}", col.getFullName(), collectionDocs);
+        client.getCounts().forEach((collection, collectionDocs) -> {
+            log.info(" - {}: {}", collection, collectionDocs);
             total.addAndGet(collectionDocs);
         });
         log.info("Total documents in the local database: {}", total);